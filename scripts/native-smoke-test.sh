@@ -0,0 +1,62 @@
+#!/bin/sh
+# Smoke test for the native executable against a throwaway local Postgres (and MailHog for signup mail).
+# Runs the same checks on the JVM jar and prints startup time and RSS for both.
+#
+#   gradle nativeCompile -Pnative && gradle bootJar
+#   scripts/native-smoke-test.sh
+set -e
+
+NATIVE_BIN=${NATIVE_BIN:-build/native/nativeCompile/simplechat-backend}
+JAR=${JAR:-$(ls build/libs/*-SNAPSHOT.jar | grep -v plain | head -1)}
+PORT=18082
+
+export DB_HOST=localhost DB_NAME=smoke DB_USER=smoke DB_PASSWORD=smoke
+export JWT_SECRET=c21va2UtdGVzdC1zZWNyZXQtc21va2UtdGVzdC1zZWNyZXQtc21va2UtdGVzdA==
+export ENCRYPTION_SECRET=SmokeTestKey1234
+export SMTP_HOST=localhost SMTP_PORT=1026
+export SERVER_PORT=$PORT
+
+docker run -d --rm --name simplechat-smoke-db -p 5432:5432 \
+    -e POSTGRES_DB=$DB_NAME -e POSTGRES_USER=$DB_USER -e POSTGRES_PASSWORD=$DB_PASSWORD postgres:15-alpine > /dev/null
+docker run -d --rm --name simplechat-smoke-mail -p 1026:1025 mailhog/mailhog > /dev/null
+trap 'docker stop simplechat-smoke-db simplechat-smoke-mail > /dev/null' EXIT
+until docker exec simplechat-smoke-db pg_isready -U $DB_USER > /dev/null 2>&1; do sleep 0.2; done
+
+api() {
+    curl -s -o /dev/null -w '%{http_code}' -H 'Content-Type: application/json' "$@"
+}
+
+run() {
+    label=$1
+    shift
+    log=build/smoke-$label.log
+
+    start=$(date +%s%3N)
+    "$@" --server.port=$PORT > "$log" 2>&1 &
+    pid=$!
+    until grep -q 'Started SimplechatBackendApplication' "$log"; do
+        kill -0 $pid 2> /dev/null || { cat "$log"; exit 1; }
+        sleep 0.02
+    done
+    started=$(date +%s%3N)
+
+    user="smoke$label"
+    test "$(api -X POST http://localhost:$PORT/api/auth/register \
+        -d "{\"username\":\"$user\",\"password\":\"secret123\",\"email\":\"$user@example.com\"}")" = 201
+    docker exec simplechat-smoke-db psql -q -U $DB_USER -d $DB_NAME \
+        -c "UPDATE app_user SET enabled = true WHERE username = '$user'"
+    token=$(curl -s -H 'Content-Type: application/json' -X POST http://localhost:$PORT/api/auth/login \
+        -d "{\"username\":\"$user\",\"password\":\"secret123\"}" | sed 's/.*"token":"\([^"]*\)".*/\1/')
+    test "$(api -H "Authorization: Bearer $token" http://localhost:$PORT/api/users/me)" = 200
+    test "$(api -H "Authorization: Bearer $token" "http://localhost:$PORT/api/users/search?query=smo")" = 200
+    test "$(api -H "Authorization: Bearer $token" http://localhost:$PORT/api/friends)" = 200
+
+    rss=$(grep VmRSS /proc/$pid/status | awk '{print $2}')
+    echo "$label: startup $((started - start)) ms, RSS after smoke requests $((rss / 1024)) MB"
+
+    kill $pid
+    wait $pid 2> /dev/null || true
+}
+
+run native "$NATIVE_BIN"
+run jvm java -jar "$JAR"
@@ -0,0 +1,47 @@
+#!/bin/sh
+# Compares startup time and first-request latency of the default and the fast-start image.
+# Needs docker and the postgres service from docker-compose.yml running with a .env file.
+set -e
+
+set -a
+. ./.env
+set +a
+
+RUNS=${RUNS:-5}
+NETWORK=${NETWORK:-simplechat_default}
+
+docker build -q -t simplechat-backend:jvm .
+docker build -q -t simplechat-backend:faststart --target faststart .
+
+now_ms() {
+    date +%s%3N
+}
+
+measure() {
+    image=$1
+    container=simplechat-bench-$$
+
+    start=$(now_ms)
+    docker run -d --rm --name "$container" --network "$NETWORK" --env-file .env \
+        -e DB_HOST=postgres -e ENCRYPTION_SECRET="$ENCRYPTION_KEY" -p 18081:8081 "$image" > /dev/null
+
+    until curl -s -o /dev/null http://localhost:18081/api/auth/login -X POST \
+            -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench"}'; do
+        sleep 0.05
+    done
+    ready=$(now_ms)
+
+    first_request=$(curl -s -o /dev/null -w '%{time_total}' http://localhost:18081/api/auth/login -X POST \
+            -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench"}')
+    started=$(docker logs "$container" 2>&1 | grep -o 'Started SimplechatBackendApplication in [0-9.]* seconds' || true)
+
+    echo "$image: first response after $((ready - start)) ms, second request ${first_request}s, $started"
+    docker stop "$container" > /dev/null
+}
+
+i=0
+while [ $i -lt "$RUNS" ]; do
+    measure simplechat-backend:jvm
+    measure simplechat-backend:faststart
+    i=$((i + 1))
+done
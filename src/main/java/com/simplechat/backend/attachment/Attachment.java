@@ -0,0 +1,119 @@
+package com.simplechat.backend.attachment;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A file sent from one user to another. The content lives encrypted in the attachment store and is uploaded in
+ * chunks; the attachment is complete, and can be sent and downloaded, once every byte has arrived.
+ */
+@Entity
+@Table(name = "attachments")
+public class Attachment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "uploader_id", nullable = false)
+    private Long uploaderId;
+
+    @Column(name = "recipient_id", nullable = false)
+    private Long recipientId;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "content_type", nullable = false, length = 127)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "uploaded_bytes", nullable = false)
+    private long uploadedBytes;
+
+    // Initial AES-CTR counter block of the stored content
+    @Column(name = "iv", nullable = false, length = 16)
+    private byte[] iv;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public boolean isComplete() {
+        return uploadedBytes == sizeBytes;
+    }
+
+    public boolean isVisibleTo(Long userId) {
+        return uploaderId.equals(userId) || recipientId.equals(userId);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUploaderId() {
+        return uploaderId;
+    }
+
+    public void setUploaderId(Long uploaderId) {
+        this.uploaderId = uploaderId;
+    }
+
+    public Long getRecipientId() {
+        return recipientId;
+    }
+
+    public void setRecipientId(Long recipientId) {
+        this.recipientId = recipientId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public void setUploadedBytes(long uploadedBytes) {
+        this.uploadedBytes = uploadedBytes;
+    }
+
+    public byte[] getIv() {
+        return iv;
+    }
+
+    public void setIv(byte[] iv) {
+        this.iv = iv;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,147 @@
+package com.simplechat.backend.attachment;
+
+import com.simplechat.backend.user.User;
+import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RestController
+@RequestMapping("/api/attachments")
+public class AttachmentController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private final AttachmentService attachmentService;
+
+    public AttachmentController(AttachmentService attachmentService) {
+        this.attachmentService = attachmentService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createUpload(@Valid @RequestBody AttachmentUploadRequest request, Authentication authentication) {
+        try {
+            User uploader = (User) authentication.getPrincipal();
+            return ResponseEntity.status(201).body(attachmentService.create(uploader, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<AttachmentUploadStatus> getUploadStatus(@PathVariable Long id, Authentication authentication) {
+        User uploader = (User) authentication.getPrincipal();
+        return ResponseEntity.of(attachmentService.getUploadStatus(uploader, id));
+    }
+
+    /**
+     * Uploads one chunk as the raw request body, located by a {@code Content-Range: bytes start-end/size} header.
+     * The body is encrypted to disk as it is read.
+     */
+    @PutMapping(path = "/{id}/content", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable Long id,
+            @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+            InputStream body,
+            Authentication authentication
+    ) throws IOException {
+        Matcher range = CONTENT_RANGE.matcher(contentRange);
+        if (!range.matches()) {
+            return ResponseEntity.status(400).body(Map.of("error", "Expected Content-Range: bytes start-end/size"));
+        }
+
+        User uploader = (User) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(attachmentService.appendChunk(uploader, id,
+                    Long.parseLong(range.group(1)), Long.parseLong(range.group(2)), Long.parseLong(range.group(3)), body));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(400).body(Map.of("error", "Content-Range is out of range"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Streams the decrypted file, or the single byte range asked for with a {@code Range} header.
+     * Requests for several ranges get the whole file, which the HTTP spec allows.
+     */
+    @GetMapping("/{id}/content")
+    public ResponseEntity<StreamingResponseBody> download(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            Authentication authentication
+    ) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Attachment> found = attachmentService.findDownloadable(user, id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Attachment attachment = found.get();
+        long size = attachment.getSizeBytes();
+        long start = 0;
+        long end = size - 1;
+        boolean partial = false;
+
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    partial = true;
+                }
+                if (start > end) {
+                    throw new IllegalArgumentException("Range starts past the end of the file");
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+        }
+
+        long from = start;
+        long length = end - start + 1;
+        StreamingResponseBody body = out -> attachmentService.read(attachment, from, length, out);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .contentType(mediaTypeOf(attachment))
+                .contentLength(length)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(attachment.getFileName(), StandardCharsets.UTF_8).build().toString());
+        if (partial) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        return response.body(body);
+    }
+
+    private static MediaType mediaTypeOf(Attachment attachment) {
+        try {
+            return MediaType.parseMediaType(attachment.getContentType());
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
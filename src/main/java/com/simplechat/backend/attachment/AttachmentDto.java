@@ -0,0 +1,18 @@
+package com.simplechat.backend.attachment;
+
+public record AttachmentDto(
+    Long id,
+    String fileName,
+    String contentType,
+    long size
+) {
+
+    public static AttachmentDto fromAttachment(Attachment attachment) {
+        return new AttachmentDto(
+            attachment.getId(),
+            attachment.getFileName(),
+            attachment.getContentType(),
+            attachment.getSizeBytes()
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package com.simplechat.backend.attachment;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AttachmentRepository extends JpaRepository<Attachment, Long> {
+
+    /**
+     * Records a chunk, unless another request has already moved the upload past {@code fromBytes}.
+     *
+     * @return the number of rows updated, 0 if the upload was not at {@code fromBytes}
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Attachment a SET a.uploadedBytes = :toBytes WHERE a.id = :id AND a.uploadedBytes = :fromBytes")
+    int advanceUpload(@Param("id") Long id, @Param("fromBytes") long fromBytes, @Param("toBytes") long toBytes);
+
+    @Query("SELECT a.id FROM Attachment a WHERE a.uploadedBytes < a.sizeBytes AND a.createdAt < :cutoff")
+    List<Long> findIncompleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,164 @@
+package com.simplechat.backend.attachment;
+
+import com.simplechat.backend.config.SchedulingConfig;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Chunked, resumable attachment uploads and ranged downloads. Chunks must arrive in order: each one starts where the
+ * upload stands, so a client that lost a response asks for the status and carries on from there.
+ * Only the uploader and the recipient can see an attachment.
+ */
+@Service
+public class AttachmentService {
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final AttachmentRepository attachmentRepository;
+    private final AttachmentStore attachmentStore;
+    private final UserRepository userRepository;
+    private final long maxSize;
+    private final int maxChunkSize;
+    private final Duration incompleteTtl;
+
+    public AttachmentService(
+            AttachmentRepository attachmentRepository,
+            AttachmentStore attachmentStore,
+            UserRepository userRepository,
+            @Value("${app.attachments.max-size:26214400}") long maxSize,
+            @Value("${app.attachments.max-chunk-size:1048576}") int maxChunkSize,
+            @Value("${app.attachments.incomplete-ttl-ms:86400000}") long incompleteTtlMillis
+    ) {
+        this.attachmentRepository = attachmentRepository;
+        this.attachmentStore = attachmentStore;
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.maxChunkSize = maxChunkSize;
+        this.incompleteTtl = Duration.ofMillis(incompleteTtlMillis);
+    }
+
+    public AttachmentUploadStatus create(User uploader, AttachmentUploadRequest request) {
+        if (request.size() > maxSize) {
+            throw new IllegalArgumentException("File is too large (max " + maxSize / (1024 * 1024) + " MB)");
+        }
+        if (!userRepository.existsById(request.recipientId())) {
+            throw new IllegalArgumentException("Recipient not found");
+        }
+
+        Attachment attachment = new Attachment();
+        attachment.setUploaderId(uploader.getId());
+        attachment.setRecipientId(request.recipientId());
+        attachment.setFileName(request.fileName());
+        attachment.setContentType(request.contentType() == null || request.contentType().isBlank()
+                ? DEFAULT_CONTENT_TYPE : request.contentType());
+        attachment.setSizeBytes(request.size());
+        attachment.setIv(attachmentStore.newIv());
+        attachment.setCreatedAt(Instant.now());
+
+        return statusOf(attachmentRepository.save(attachment));
+    }
+
+    public Optional<AttachmentUploadStatus> getUploadStatus(User uploader, Long attachmentId) {
+        return attachmentRepository.findById(attachmentId)
+                .filter(attachment -> attachment.getUploaderId().equals(uploader.getId()))
+                .map(this::statusOf);
+    }
+
+    /**
+     * Stores bytes {@code start} to {@code end} (inclusive) of the file.
+     *
+     * @throws IllegalArgumentException if the chunk does not fit the upload
+     * @throws IllegalStateException if the upload no longer stands at {@code start}
+     */
+    public AttachmentUploadStatus appendChunk(User uploader, Long attachmentId, long start, long end, long total, InputStream body)
+            throws IOException {
+        Attachment attachment = attachmentRepository.findById(attachmentId)
+                .filter(found -> found.getUploaderId().equals(uploader.getId()))
+                .orElseThrow(() -> new IllegalArgumentException("Attachment not found"));
+
+        long length = end - start + 1;
+        if (total != attachment.getSizeBytes() || end >= total || length <= 0) {
+            throw new IllegalArgumentException("Content-Range does not match the file size");
+        }
+        if (length > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk is too large (max " + maxChunkSize + " bytes)");
+        }
+        if (start != attachment.getUploadedBytes()) {
+            throw new IllegalStateException("Upload continues at byte " + attachment.getUploadedBytes());
+        }
+
+        attachmentStore.write(attachment, start, length, body);
+
+        if (attachmentRepository.advanceUpload(attachmentId, start, end + 1) == 0) {
+            throw new IllegalStateException("Upload was continued by another request");
+        }
+        attachment.setUploadedBytes(end + 1);
+        return statusOf(attachment);
+    }
+
+    /**
+     * A complete attachment the user sent or received.
+     */
+    public Optional<Attachment> findDownloadable(User user, Long attachmentId) {
+        return attachmentRepository.findById(attachmentId)
+                .filter(attachment -> attachment.isVisibleTo(user.getId()) && attachment.isComplete());
+    }
+
+    /**
+     * The attachment for a message from {@code sender} to {@code recipient}.
+     *
+     * @throws IllegalArgumentException unless the sender uploaded it for that recipient and the upload is complete
+     */
+    public Attachment getSendable(Long attachmentId, User sender, User recipient) {
+        return attachmentRepository.findById(attachmentId)
+                .filter(attachment -> attachment.getUploaderId().equals(sender.getId())
+                        && attachment.getRecipientId().equals(recipient.getId())
+                        && attachment.isComplete())
+                .orElseThrow(() -> new IllegalArgumentException("Attachment not found or not fully uploaded"));
+    }
+
+    /**
+     * The attachments with the given ids, for messages read back from the archive.
+     */
+    public Map<Long, AttachmentDto> describe(Collection<Long> attachmentIds) {
+        return attachmentRepository.findAllById(attachmentIds).stream()
+                .collect(Collectors.toMap(Attachment::getId, AttachmentDto::fromAttachment));
+    }
+
+    public void read(Attachment attachment, long start, long length, OutputStream out) throws IOException {
+        attachmentStore.read(attachment, start, length, out);
+    }
+
+    @Scheduled(fixedDelayString = "${app.attachments.purge-interval-ms:3600000}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void purgeAbandonedUploads() {
+        for (Long attachmentId : attachmentRepository.findIncompleteCreatedBefore(Instant.now().minus(incompleteTtl))) {
+            try {
+                attachmentStore.delete(attachmentId);
+                attachmentRepository.deleteById(attachmentId);
+            } catch (IOException e) {
+                log.warn("Could not delete abandoned upload {}", attachmentId, e);
+            }
+        }
+    }
+
+    private AttachmentUploadStatus statusOf(Attachment attachment) {
+        return new AttachmentUploadStatus(AttachmentDto.fromAttachment(attachment), attachment.getUploadedBytes(), maxChunkSize);
+    }
+}
@@ -0,0 +1,158 @@
+package com.simplechat.backend.attachment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Attachment content on local disk, encrypted with AES in counter mode. Counter mode turns AES into a stream cipher
+ * whose keystream can start at any block, so chunks are encrypted as they are read from the request and any byte
+ * range is decrypted on its own. Heap use is one buffer per transfer, whatever the file size.
+ */
+@Component
+public class AttachmentStore {
+
+    private static final String CIPHER = "AES/CTR/NoPadding";
+    private static final int BLOCK_SIZE = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final BigInteger COUNTER_MODULUS = BigInteger.ONE.shiftLeft(128);
+
+    private final Path dir;
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    public AttachmentStore(
+            @Value("${app.attachments.dir:attachments}") Path dir,
+            @Value("${app.encryption.key}") String encryptionSecret
+    ) throws GeneralSecurityException {
+        this.dir = dir;
+        // A key of its own, so file content and message text are never encrypted under the same key.
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(encryptionSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        this.key = new SecretKeySpec(mac.doFinal("attachment-content".getBytes(StandardCharsets.UTF_8)), "AES");
+    }
+
+    public byte[] newIv() {
+        byte[] iv = new byte[BLOCK_SIZE];
+        random.nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * Encrypts exactly {@code length} bytes from {@code in} into the file at plaintext offset {@code offset}.
+     *
+     * @throws IllegalArgumentException if the stream holds fewer or more than {@code length} bytes
+     */
+    public void write(Attachment attachment, long offset, long length, InputStream in) throws IOException {
+        Files.createDirectories(dir);
+        Cipher cipher = cipherAt(Cipher.ENCRYPT_MODE, attachment.getIv(), offset);
+        byte[] plain = new byte[BUFFER_SIZE];
+        byte[] encrypted = new byte[BUFFER_SIZE];
+
+        try (FileChannel channel = FileChannel.open(pathOf(attachment), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = offset;
+            long remaining = length;
+
+            while (remaining > 0) {
+                int read = in.read(plain, 0, (int) Math.min(BUFFER_SIZE, remaining));
+                if (read < 0) {
+                    throw new IllegalArgumentException("Chunk is shorter than its Content-Range");
+                }
+                ByteBuffer out = ByteBuffer.wrap(encrypted, 0, update(cipher, plain, read, encrypted));
+                while (out.hasRemaining()) {
+                    position += channel.write(out, position);
+                }
+                remaining -= read;
+            }
+        }
+
+        if (in.read() >= 0) {
+            throw new IllegalArgumentException("Chunk is longer than its Content-Range");
+        }
+    }
+
+    /**
+     * Decrypts {@code length} bytes starting at plaintext offset {@code start} into {@code out}.
+     */
+    public void read(Attachment attachment, long start, long length, OutputStream out) throws IOException {
+        Cipher cipher = cipherAt(Cipher.DECRYPT_MODE, attachment.getIv(), start);
+        ByteBuffer encrypted = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] plain = new byte[BUFFER_SIZE];
+
+        try (FileChannel channel = FileChannel.open(pathOf(attachment), StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = length;
+
+            while (remaining > 0) {
+                encrypted.clear().limit((int) Math.min(BUFFER_SIZE, remaining));
+                int read = channel.read(encrypted, position);
+                if (read < 0) {
+                    throw new EOFException("Attachment " + attachment.getId() + " is shorter than recorded");
+                }
+                out.write(plain, 0, update(cipher, encrypted.array(), read, plain));
+                position += read;
+                remaining -= read;
+            }
+        }
+    }
+
+    public void delete(Long attachmentId) throws IOException {
+        Files.deleteIfExists(dir.resolve(attachmentId + ".bin"));
+    }
+
+    private Path pathOf(Attachment attachment) {
+        return dir.resolve(attachment.getId() + ".bin");
+    }
+
+    /**
+     * A cipher positioned at plaintext byte {@code offset}: the counter is advanced by whole blocks, and the rest of
+     * the keystream block is consumed.
+     */
+    private Cipher cipherAt(int mode, byte[] iv, long offset) {
+        byte[] counter = new BigInteger(1, iv)
+                .add(BigInteger.valueOf(offset / BLOCK_SIZE))
+                .mod(COUNTER_MODULUS)
+                .toByteArray();
+        byte[] counterBlock = new byte[BLOCK_SIZE];
+        int length = Math.min(counter.length, BLOCK_SIZE);
+        System.arraycopy(counter, counter.length - length, counterBlock, BLOCK_SIZE - length, length);
+
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(mode, key, new IvParameterSpec(counterBlock));
+            int skip = (int) (offset % BLOCK_SIZE);
+            if (skip > 0) {
+                cipher.update(new byte[skip]);
+            }
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialise the attachment cipher", e);
+        }
+    }
+
+    private static int update(Cipher cipher, byte[] input, int length, byte[] output) {
+        try {
+            return cipher.update(input, 0, length, output);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("Cipher output buffer too small", e);
+        }
+    }
+}
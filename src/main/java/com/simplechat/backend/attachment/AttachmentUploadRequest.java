@@ -0,0 +1,21 @@
+package com.simplechat.backend.attachment;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+public record AttachmentUploadRequest(
+    @NotNull(message = "Recipient is required")
+    Long recipientId,
+
+    @NotBlank(message = "File name cannot be empty")
+    @Size(max = 255, message = "File name is too long (max 255 characters)")
+    String fileName,
+
+    @Size(max = 127, message = "Content type is too long")
+    String contentType,
+
+    @Positive(message = "File cannot be empty")
+    long size
+) {}
@@ -0,0 +1,10 @@
+package com.simplechat.backend.attachment;
+
+/**
+ * Where an upload stands, so a client can resume it from {@code uploadedBytes} in chunks of at most {@code maxChunkSize}.
+ */
+public record AttachmentUploadStatus(
+    AttachmentDto attachment,
+    long uploadedBytes,
+    int maxChunkSize
+) {}
@@ -1,40 +1,45 @@
 package com.simplechat.backend.auth;
 
+import com.simplechat.backend.jwt.AccessToken;
 import com.simplechat.backend.jwt.JwtService;
 import com.simplechat.backend.user.RegistrationRequest;
 import com.simplechat.backend.user.User;
 import com.simplechat.backend.user.UserService;
 import com.simplechat.backend.email.EmailService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import jakarta.validation.Valid;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
     private final UserService userService;
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
+    private final SessionTokenService sessionTokenService;
     private final JwtService jwtService;
     private final EmailService emailService;
 
     public AuthController(
             UserService userService,
-            AuthenticationManager authenticationManager,
+            LoginService loginService,
+            SessionTokenService sessionTokenService,
             JwtService jwtService,
             EmailService emailService 
     ) {
         this.userService = userService;
-        this.authenticationManager = authenticationManager;
+        this.loginService = loginService;
+        this.sessionTokenService = sessionTokenService;
         this.jwtService = jwtService;
         this.emailService = emailService;
     }
@@ -66,26 +71,41 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody LoginRequest request) {
-        try {
-            if (!userService.isUserEnabled(request.username())) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Account not verified. Please check your email."));
-            }
-
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.username(), request.password())
-            );
-
-            String username = authentication.getName();
-            String token = jwtService.generateToken(username);
-
-            return ResponseEntity.ok(new LoginResponse(token));
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody LoginRequest request) {
+        return loginService.login(request.username(), request.password())
+                .<ResponseEntity<?>>thenApply(result -> switch (result.outcome()) {
+                    case SUCCESS -> ResponseEntity.ok(toResponse(result.tokens()));
+                    case NOT_VERIFIED -> ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Account not verified. Please check your email."));
+                    case INVALID_CREDENTIALS -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid username or password"));
+                })
+                .exceptionally(e -> {
+                    if (e.getCause() instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(Map.of("error", "Server is busy, please try again"));
+                    }
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                });
+    }
 
-        } catch (AuthenticationException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid username or password"));
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> payload) {
+        try {
+            return ResponseEntity.ok(toResponse(sessionTokenService.refresh(payload.get("refreshToken"))));
+        } catch (IllegalStateException e) {
+            // Another tab of the same client refreshed first; it stores the new tokens for both
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Session was just refreshed, use the latest tokens"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Session expired, please log in again"));
         }
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(Authentication authentication) {
+        sessionTokenService.endSession((AccessToken) authentication.getCredentials());
+        return ResponseEntity.ok(Map.of("message", "Logged out"));
+    }
+
     @PostMapping("/forgot-password")
     public ResponseEntity<?> forgotPassword(@RequestBody Map<String, String> payload) {
         String email = payload.get("email");
@@ -113,4 +133,8 @@ public class AuthController {
             return ResponseEntity.status(400).body(Map.of("error", "Something went wrong"));
         }
     }
+
+    private LoginResponse toResponse(AuthTokens tokens) {
+        return new LoginResponse(tokens.accessToken(), tokens.refreshToken(), jwtService.getExpiration().toSeconds());
+    }
 }
\ No newline at end of file
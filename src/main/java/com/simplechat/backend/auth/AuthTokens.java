@@ -0,0 +1,9 @@
+package com.simplechat.backend.auth;
+
+/**
+ * An access token and the refresh token that renews it.
+ */
+public record AuthTokens(
+        String accessToken,
+        String refreshToken
+) {}
@@ -1,5 +1,7 @@
 package com.simplechat.backend.auth;
 
 public record LoginResponse(
-    String token
-) {}
\ No newline at end of file
+    String token,
+    String refreshToken,
+    long expiresIn
+) {}
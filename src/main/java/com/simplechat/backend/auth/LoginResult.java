@@ -0,0 +1,24 @@
+package com.simplechat.backend.auth;
+
+/**
+ * The outcome of a login attempt; {@code tokens} is only set on success.
+ */
+public record LoginResult(
+        Outcome outcome,
+        AuthTokens tokens
+) {
+
+    public enum Outcome {
+        SUCCESS,
+        INVALID_CREDENTIALS,
+        NOT_VERIFIED
+    }
+
+    static LoginResult success(AuthTokens tokens) {
+        return new LoginResult(Outcome.SUCCESS, tokens);
+    }
+
+    static LoginResult failure(Outcome outcome) {
+        return new LoginResult(outcome, null);
+    }
+}
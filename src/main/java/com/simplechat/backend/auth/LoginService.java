@@ -0,0 +1,81 @@
+package com.simplechat.backend.auth;
+
+import com.simplechat.backend.config.AsyncConfig;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Checks login credentials and starts a session. The user row is read once on the request thread;
+ * the BCrypt comparison runs on the {@link PasswordHashingExecutor}. Database work after it, such as starting the
+ * session, continues on the application executor, so a hashing thread never waits for a connection.
+ * Hashes made with a lower cost than the configured one are replaced after a successful login.
+ */
+@Service
+public class LoginService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginService.class);
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final SessionTokenService sessionTokenService;
+    private final Executor applicationExecutor;
+
+    // Compared against when the username does not exist, so unknown names take as long as wrong passwords.
+    private final String unknownUserHash;
+
+    public LoginService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            PasswordHashingExecutor hashingExecutor,
+            SessionTokenService sessionTokenService,
+            @Qualifier(AsyncConfig.APPLICATION_TASK_EXECUTOR) Executor applicationExecutor
+    ) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.hashingExecutor = hashingExecutor;
+        this.sessionTokenService = sessionTokenService;
+        this.applicationExecutor = applicationExecutor;
+        this.unknownUserHash = passwordEncoder.encode("unknown-user");
+    }
+
+    public CompletableFuture<LoginResult> login(String username, String password) {
+        User user = userRepository.findByUsername(username).orElse(null);
+        String storedHash = user != null ? user.getPassword() : unknownUserHash;
+
+        return hashingExecutor.submit(() -> password != null && passwordEncoder.matches(password, storedHash))
+                .thenApplyAsync(matches -> {
+                    if (!matches || user == null) {
+                        return LoginResult.failure(LoginResult.Outcome.INVALID_CREDENTIALS);
+                    }
+                    if (!user.isEnabled()) {
+                        return LoginResult.failure(LoginResult.Outcome.NOT_VERIFIED);
+                    }
+                    if (passwordEncoder.upgradeEncoding(storedHash)) {
+                        rehash(user.getId(), storedHash, password);
+                    }
+                    return LoginResult.success(sessionTokenService.startSession(user));
+                }, applicationExecutor);
+    }
+
+    /**
+     * Re-encodes the password with the current cost in the background; the login response does not wait for it.
+     * If the pool is busy the rehash is skipped and tried again on the next login.
+     */
+    private void rehash(Long userId, String oldHash, String password) {
+        hashingExecutor.submit(() -> passwordEncoder.encode(password))
+                .thenAcceptAsync(newHash -> userRepository.replacePasswordHash(userId, oldHash, newHash), applicationExecutor)
+                .exceptionally(e -> {
+                    log.debug("Skipped password rehash for user {}", userId, e);
+                    return null;
+                });
+    }
+}
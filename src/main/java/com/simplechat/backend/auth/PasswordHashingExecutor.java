@@ -0,0 +1,97 @@
+package com.simplechat.backend.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt work on a small fixed pool so a login storm cannot occupy every Tomcat thread.
+ * The queue is bounded, and a task that waited longer than the queue-time limit is failed instead of run:
+ * by then the client has likely given up, and hashing for it would only delay the requests behind it.
+ * Both cases fail the returned future with {@link RejectedExecutionException}.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueNanos;
+    private final Timer queueWait;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+
+    public PasswordHashingExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.hashing.threads:0}") int threads,
+            @Value("${app.security.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.security.hashing.max-queue-ms:2000}") long maxQueueMillis
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"));
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMillis);
+
+        this.queueWait = Timer.builder("auth.hashing.queue.wait")
+                .description("Time password hashing tasks spend queued before a worker picks them up")
+                .register(meterRegistry);
+        this.rejectedQueueFull = rejectedCounter(meterRegistry, "queue-full");
+        this.rejectedQueueTimeout = rejectedCounter(meterRegistry, "queue-timeout");
+        Gauge.builder("auth.hashing.queue", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues {@code task} and returns a future completed on a hashing thread.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                queueWait.record(Duration.ofNanos(waited));
+
+                if (waited > maxQueueNanos) {
+                    rejectedQueueTimeout.increment();
+                    result.completeExceptionally(new RejectedExecutionException("Password hashing queue wait exceeded"));
+                    return;
+                }
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.hashing.rejected")
+                .description("Password hashing tasks rejected before running")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
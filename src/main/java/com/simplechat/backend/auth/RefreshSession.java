@@ -0,0 +1,75 @@
+package com.simplechat.backend.auth;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One login session. Only hashes of the refresh tokens are stored: the current one, and the one it
+ * replaced (and when) so that a replayed token can be recognised and the session shut down.
+ * Logging out deletes the row.
+ */
+@Entity
+@Table(name = "refresh_sessions")
+public class RefreshSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false, unique = true, length = 36)
+    private String sessionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    @Column(name = "previous_token_hash", length = 64)
+    private String previousTokenHash;
+
+    @Column(name = "rotated_at")
+    private Instant rotatedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    protected RefreshSession() {
+    }
+
+    public RefreshSession(String sessionId, Long userId, String tokenHash, Instant expiresAt) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.tokenHash = tokenHash;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public String getPreviousTokenHash() {
+        return previousTokenHash;
+    }
+
+    public Instant getRotatedAt() {
+        return rotatedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,45 @@
+package com.simplechat.backend.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RefreshSessionRepository extends JpaRepository<RefreshSession, Long> {
+
+    @Query("SELECT s FROM RefreshSession s WHERE s.tokenHash = :hash OR s.previousTokenHash = :hash")
+    Optional<RefreshSession> findByCurrentOrPreviousTokenHash(@Param("hash") String hash);
+
+    /**
+     * Moves the session to a new token, unless a concurrent refresh already did.
+     */
+    @Modifying
+    @Query("UPDATE RefreshSession s SET s.previousTokenHash = s.tokenHash, s.tokenHash = :newHash, s.rotatedAt = :now, " +
+            "s.expiresAt = :expiresAt WHERE s.id = :id AND s.tokenHash = :oldHash")
+    int rotate(
+            @Param("id") Long id,
+            @Param("oldHash") String oldHash,
+            @Param("newHash") String newHash,
+            @Param("now") Instant now,
+            @Param("expiresAt") Instant expiresAt
+    );
+
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
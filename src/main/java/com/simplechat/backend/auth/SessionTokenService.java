@@ -0,0 +1,148 @@
+package com.simplechat.backend.auth;
+
+import com.simplechat.backend.config.SchedulingConfig;
+import com.simplechat.backend.jwt.AccessToken;
+import com.simplechat.backend.jwt.JwtService;
+import com.simplechat.backend.jwt.TokenRevocationList;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues access and refresh tokens for login sessions.
+ * Every refresh replaces the refresh token; presenting the replaced one again means it was copied,
+ * so the whole session is revoked. The exception is a short grace window after the rotation: browser tabs share
+ * one refresh token, and a tab that read it just before another tab rotated it is not a thief.
+ */
+@Service
+public class SessionTokenService {
+
+    private final RefreshSessionRepository sessionRepository;
+    private final UserRepository userRepository;
+    private final JwtService jwtService;
+    private final TokenRevocationList revocationList;
+    private final Duration refreshLifetime;
+    private final Duration reuseGrace;
+    private final SecureRandom random = new SecureRandom();
+
+    public SessionTokenService(
+            RefreshSessionRepository sessionRepository,
+            UserRepository userRepository,
+            JwtService jwtService,
+            TokenRevocationList revocationList,
+            @Value("${application.security.jwt.refresh-expiration:1209600000}") long refreshExpirationMillis,
+            @Value("${app.security.refresh-sessions.reuse-grace-ms:30000}") long reuseGraceMillis
+    ) {
+        this.sessionRepository = sessionRepository;
+        this.userRepository = userRepository;
+        this.jwtService = jwtService;
+        this.revocationList = revocationList;
+        this.refreshLifetime = Duration.ofMillis(refreshExpirationMillis);
+        this.reuseGrace = Duration.ofMillis(reuseGraceMillis);
+    }
+
+    @Transactional
+    public AuthTokens startSession(User user) {
+        String sessionId = UUID.randomUUID().toString();
+        String refreshToken = newRefreshToken();
+
+        sessionRepository.save(new RefreshSession(sessionId, user.getId(), hash(refreshToken), Instant.now().plus(refreshLifetime)));
+        return new AuthTokens(jwtService.generateToken(user.getId(), user.getUsername(), sessionId), refreshToken);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access and refresh token pair.
+     *
+     * @throws IllegalArgumentException if the token is unknown, expired, replayed or the session was revoked
+     * @throws IllegalStateException if a concurrent refresh replaced the token moments ago; the caller should use
+     * the tokens that refresh returned
+     */
+    // Revoking a session on replay must commit even though the refresh itself fails
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public AuthTokens refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+        String tokenHash = hash(refreshToken);
+        RefreshSession session = sessionRepository.findByCurrentOrPreviousTokenHash(tokenHash)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+
+        if (!tokenHash.equals(session.getTokenHash())) {
+            if (session.getRotatedAt() != null && session.getRotatedAt().plus(reuseGrace).isAfter(Instant.now())) {
+                throw new IllegalStateException("Refresh token was just replaced");
+            }
+            // A token that was already exchanged: whoever holds it is not the session's current client
+            endSession(session.getUserId(), session.getSessionId());
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            sessionRepository.deleteBySessionId(session.getSessionId());
+            throw new IllegalArgumentException("Refresh token expired");
+        }
+
+        String nextToken = newRefreshToken();
+        Instant now = Instant.now();
+        if (sessionRepository.rotate(session.getId(), tokenHash, hash(nextToken), now, now.plus(refreshLifetime)) == 0) {
+            throw new IllegalStateException("Refresh token was just replaced");
+        }
+
+        User user = userRepository.findById(session.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+        return new AuthTokens(jwtService.generateToken(user.getId(), user.getUsername(), session.getSessionId()), nextToken);
+    }
+
+    /**
+     * Logs out one session: its refresh token stops working and its access tokens are rejected on every node.
+     */
+    @Transactional
+    public void endSession(AccessToken token) {
+        endSession(token.userId(), token.sessionId());
+    }
+
+    /**
+     * Logs the user out everywhere, e.g. after a password reset.
+     */
+    @Transactional
+    public void endAllSessions(Long userId) {
+        sessionRepository.deleteByUserId(userId);
+        revocationList.revokeUser(userId);
+    }
+
+    private void endSession(Long userId, String sessionId) {
+        sessionRepository.deleteBySessionId(sessionId);
+        revocationList.revokeSession(userId, sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.refresh-sessions.purge-ms:3600000}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void purgeExpiredSessions() {
+        sessionRepository.deleteExpired(Instant.now());
+    }
+
+    private String newRefreshToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
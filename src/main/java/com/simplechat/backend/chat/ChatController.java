@@ -2,16 +2,24 @@ package com.simplechat.backend.chat;
 
 import com.simplechat.backend.message.ChatMessageRequest;
 import com.simplechat.backend.message.Message;
-import com.simplechat.backend.message.MessageDto;
 import com.simplechat.backend.message.MessageService;
+import com.simplechat.backend.message.PendingDeliveryService;
+import com.simplechat.backend.message.SentMessage;
+import com.simplechat.backend.receipt.ReceiptAckRequest;
+import com.simplechat.backend.receipt.ReceiptService;
 import com.simplechat.backend.user.User;
 import com.simplechat.backend.user.UserRepository;
+import com.simplechat.backend.wire.NegotiatedPayload;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import java.util.stream.Collectors;
 import java.util.Set;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import java.security.Principal;
 import jakarta.validation.Valid;
@@ -22,33 +30,75 @@ public class ChatController {
     private final SimpMessagingTemplate messagingTemplate;
     private final MessageService messageService;
     private final UserRepository userRepository;
-    private final SimpUserRegistry userRegistry;
+    private final PendingDeliveryService pendingDeliveryService;
+    private final TypingIndicatorService typingIndicatorService;
+    private final ReceiptService receiptService;
 
     public ChatController(SimpMessagingTemplate messagingTemplate, 
         MessageService messageService, 
         UserRepository userRepository, 
-        SimpUserRegistry userRegistry) {
+        PendingDeliveryService pendingDeliveryService,
+        TypingIndicatorService typingIndicatorService,
+        ReceiptService receiptService) {
         this.messagingTemplate = messagingTemplate;
         this.messageService = messageService;
         this.userRepository = userRepository;
-        this.userRegistry = userRegistry;
+        this.pendingDeliveryService = pendingDeliveryService;
+        this.typingIndicatorService = typingIndicatorService;
+        this.receiptService = receiptService;
     }
 
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload @Valid ChatMessageRequest chatMessage, Principal principal) {
+    public void sendMessage(@Payload @Valid ChatMessageRequest chatMessage, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId, Principal principal) {
         String username = principal.getName();
 
         User sender = userRepository.findByUsername(username).orElseThrow(() -> new IllegalArgumentException("Sender not found"));
 
-        Message savedMessage = messageService.saveMessage(sender, chatMessage);
+        SentMessage sent = messageService.send(sender, chatMessage);
+        // Encoded at most once per wire format, however many sessions the two users have open.
+        NegotiatedPayload messageDto = sent.payload();
+        String senderDestination = "/user/" + sender.getUsername() + "/queue/private";
 
-        MessageDto messageDto = MessageDto.fromMessage(savedMessage);
+        if (sent.isResend()) {
+            // Delivered the first time round; only the resending session still waits for its copy.
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(sessionId);
+            accessor.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(sender.getUsername(), "/queue/private", messageDto, accessor.getMessageHeaders());
+            return;
+        }
 
+        Message savedMessage = sent.message();
         String recipientUsername = savedMessage.getRecipient().getUsername();
-        String senderUsername = sender.getUsername();
-        String recipientDestination = "/user/" + recipientUsername + "/queue/private";
-        messagingTemplate.convertAndSend(recipientDestination, messageDto);
-        String senderDestination = "/user/" + senderUsername + "/queue/private";
+        // The broker drops messages for users with no subscribed session, so those wait for the catch-up below.
+        if (pendingDeliveryService.isReceiving(recipientUsername)) {
+            String recipientDestination = "/user/" + recipientUsername + "/queue/private";
+            messagingTemplate.convertAndSend(recipientDestination, messageDto);
+        } else {
+            pendingDeliveryService.enqueue(savedMessage);
+        }
         messagingTemplate.convertAndSend(senderDestination, messageDto);
     }
+
+    /**
+     * Replies once, to the subscribing session only, with every message that arrived while the user was offline.
+     * Clients subscribe after {@code /user/queue/private}, so nothing falls between the two.
+     */
+    @SubscribeMapping("/messages.pending")
+    public NegotiatedPayload pendingMessages(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return pendingDeliveryService.drain(user.getId());
+    }
+
+    @MessageMapping("/chat.typing")
+    public void sendTyping(@Payload @Valid TypingRequest typingRequest, SimpMessageHeaderAccessor headerAccessor, Authentication authentication) {
+        User sender = (User) authentication.getPrincipal();
+        typingIndicatorService.submit(headerAccessor.getSessionId(), sender, typingRequest);
+    }
+
+    @MessageMapping("/chat.ack")
+    public void acknowledge(@Payload @Valid ReceiptAckRequest ackRequest, Authentication authentication) {
+        User reader = (User) authentication.getPrincipal();
+        receiptService.acknowledge(reader, ackRequest);
+    }
 }
\ No newline at end of file
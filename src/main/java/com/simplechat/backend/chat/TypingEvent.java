@@ -0,0 +1,7 @@
+package com.simplechat.backend.chat;
+
+public record TypingEvent(
+    Long senderId,
+    String senderUsername,
+    boolean typing
+) {}
@@ -0,0 +1,137 @@
+package com.simplechat.backend.chat;
+
+import com.simplechat.backend.friend.FriendService;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Relays "is typing" signals between friends. Nothing is persisted.
+ * "Typing" frames are throttled per session, and per conversation at most one event is sent per window
+ * (the latest state wins), so a fast typist produces a handful of frames, not one per key.
+ */
+@Service
+public class TypingIndicatorService {
+
+    private final FriendService friendService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TaskScheduler taskScheduler;
+    private final long sessionThrottleMillis;
+    private final long conversationWindowMillis;
+
+    private final Map<String, Long> lastFrameAtBySession = new ConcurrentHashMap<>();
+    private final Map<ConversationKey, TypingState> stateByConversation = new ConcurrentHashMap<>();
+
+    public TypingIndicatorService(
+            FriendService friendService,
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("realtimeTaskScheduler") TaskScheduler taskScheduler,
+            @Value("${app.typing.session-throttle-ms:100}") long sessionThrottleMillis,
+            @Value("${app.typing.conversation-window-ms:1000}") long conversationWindowMillis
+    ) {
+        this.friendService = friendService;
+        this.messagingTemplate = messagingTemplate;
+        this.taskScheduler = taskScheduler;
+        this.sessionThrottleMillis = sessionThrottleMillis;
+        this.conversationWindowMillis = conversationWindowMillis;
+    }
+
+    public void submit(String sessionId, User sender, TypingRequest request) {
+        long now = System.currentTimeMillis();
+
+        // Only "typing" frames are throttled: the client repeats them, but sends "stopped" once, and losing it
+        // would leave the indicator on until the recipient's timeout.
+        if (request.typing()) {
+            Long acceptedAt = lastFrameAtBySession.compute(sessionId,
+                    (id, previous) -> previous == null || now - previous >= sessionThrottleMillis ? now : previous);
+            if (acceptedAt != now) {
+                return;
+            }
+        }
+
+        UserDto recipient = friendService.getCachedFriends(sender.getId()).get(request.recipientId());
+        if (recipient == null) {
+            return;
+        }
+
+        ConversationKey key = new ConversationKey(sender.getId(), recipient.id());
+        TypingState state = stateByConversation.computeIfAbsent(
+                key, k -> new TypingState(UserDto.fromUser(sender), recipient.username()));
+
+        synchronized (state) {
+            state.latestTyping = request.typing();
+
+            if (state.pendingFlush != null) {
+                return;
+            }
+
+            long nextAllowedAt = state.lastSentAt + conversationWindowMillis;
+            if (now >= nextAllowedAt) {
+                send(state, now);
+            } else {
+                state.pendingFlush = taskScheduler.schedule(() -> flush(state), Instant.ofEpochMilli(nextAllowedAt));
+            }
+        }
+    }
+
+    private void flush(TypingState state) {
+        synchronized (state) {
+            state.pendingFlush = null;
+
+            // Repeated "typing" frames refresh the indicator; a repeated "stopped" carries no news.
+            if (state.latestTyping || state.latestTyping != state.lastSentTyping) {
+                send(state, System.currentTimeMillis());
+            }
+        }
+    }
+
+    private void send(TypingState state, long now) {
+        state.lastSentTyping = state.latestTyping;
+        state.lastSentAt = now;
+
+        messagingTemplate.convertAndSend(
+                "/user/" + state.recipientUsername + "/queue/typing",
+                new TypingEvent(state.sender.id(), state.sender.username(), state.latestTyping)
+        );
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        lastFrameAtBySession.remove(event.getSessionId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.typing.state-ttl-ms:60000}")
+    public void evictIdleConversations() {
+        long cutoff = System.currentTimeMillis() - conversationWindowMillis * 10;
+        stateByConversation.values().removeIf(state -> state.pendingFlush == null && state.lastSentAt < cutoff);
+    }
+
+    private record ConversationKey(Long senderId, Long recipientId) {}
+
+    private static final class TypingState {
+
+        private final UserDto sender;
+        private final String recipientUsername;
+        private boolean latestTyping;
+        private boolean lastSentTyping;
+        private long lastSentAt;
+        private ScheduledFuture<?> pendingFlush;
+
+        private TypingState(UserDto sender, String recipientUsername) {
+            this.sender = sender;
+            this.recipientUsername = recipientUsername;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.simplechat.backend.chat;
+
+import jakarta.validation.constraints.NotNull;
+
+public record TypingRequest(
+    @NotNull
+    Long recipientId,
+
+    boolean typing
+) {}
@@ -0,0 +1,27 @@
+package com.simplechat.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Threads for request work that continues after an asynchronous step, such as starting a session once the password
+ * check on the hashing pool is done; Spring MVC also uses it for async requests. Boot would create this executor,
+ * but backs off because the WebSocket config registers executors of its own.
+ */
+@Configuration
+public class AsyncConfig {
+
+    public static final String APPLICATION_TASK_EXECUTOR = "applicationTaskExecutor";
+
+    @Bean(APPLICATION_TASK_EXECUTOR)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(@Value("${app.async.pool-size:4}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("app-task-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,93 @@
+package com.simplechat.backend.config;
+
+import com.simplechat.backend.attachment.Attachment;
+import com.simplechat.backend.attachment.AttachmentDto;
+import com.simplechat.backend.attachment.AttachmentUploadStatus;
+import com.simplechat.backend.auth.LoginResponse;
+import com.simplechat.backend.auth.RefreshSession;
+import com.simplechat.backend.chat.TypingEvent;
+import com.simplechat.backend.friend.FriendRequest;
+import com.simplechat.backend.friend.FriendRequestChangedEvent;
+import com.simplechat.backend.friend.FriendRequestDto;
+import com.simplechat.backend.friend.FriendRequestRow;
+import com.simplechat.backend.friend.FriendRequestTarget;
+import com.simplechat.backend.jwt.TokenRevocation;
+import com.simplechat.backend.message.CompactMessageDto;
+import com.simplechat.backend.message.Message;
+import com.simplechat.backend.message.MessageClientId;
+import com.simplechat.backend.message.MessageDto;
+import com.simplechat.backend.message.MessageRow;
+import com.simplechat.backend.message.MessageSearchBackfill;
+import com.simplechat.backend.message.MessageSearchToken;
+import com.simplechat.backend.message.PendingDelivery;
+import com.simplechat.backend.presence.PresenceEvent;
+import com.simplechat.backend.receipt.ConversationReceipt;
+import com.simplechat.backend.receipt.ReceiptEvent;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserDto;
+import com.simplechat.backend.user.UserSearchResponse;
+import com.simplechat.backend.util.AttributeEncryptor;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.stream.Stream;
+
+/**
+ * Reachability metadata for the native image that Spring AOT cannot infer on its own.
+ * Ignored on the JVM.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.AppRuntimeHints.class)
+// Payloads pushed with SimpMessagingTemplate, encoded per session from a NegotiatedPayload (single or as a list)
+// or returned behind ResponseEntity<?> are never a declared handler return type, so AOT does not see them.
+@RegisterReflectionForBinding({
+        MessageDto.class,
+        CompactMessageDto.class,
+        AttachmentDto.class,
+        AttachmentUploadStatus.class,
+        PresenceEvent.class,
+        TypingEvent.class,
+        ReceiptEvent.class,
+        UserSearchResponse.class,
+        FriendRequestDto.class,
+        FriendRequestChangedEvent.class,
+        LoginResponse.class
+})
+public class NativeHintsConfig {
+
+    static class AppRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            Stream.of(User.class, Message.class, FriendRequest.class, ConversationReceipt.class, AttributeEncryptor.class,
+                            RefreshSession.class, TokenRevocation.class, Attachment.class, PendingDelivery.class,
+                            MessageSearchToken.class, MessageSearchToken.Key.class, MessageSearchBackfill.class,
+                            MessageClientId.class, MessageClientId.Key.class)
+                    .forEach(type -> hints.reflection().registerType(type, MemberCategory.values()));
+
+            // Results of JPQL constructor expressions, which Hibernate instantiates reflectively.
+            Stream.of(MessageRow.class, FriendRequestRow.class, FriendRequestTarget.class, UserDto.class)
+                    .forEach(type -> hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+
+            // jjwt 0.11 looks its implementation classes up by name at runtime.
+            Stream.of(
+                    "io.jsonwebtoken.impl.DefaultJwtBuilder",
+                    "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+                    "io.jsonwebtoken.impl.DefaultJwtParser",
+                    "io.jsonwebtoken.impl.DefaultClaims",
+                    "io.jsonwebtoken.impl.DefaultJwsHeader",
+                    "io.jsonwebtoken.impl.compression.DefaultCompressionCodecResolver",
+                    "io.jsonwebtoken.jackson.io.JacksonSerializer",
+                    "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+            ).forEach(type -> hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS));
+
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        }
+    }
+}
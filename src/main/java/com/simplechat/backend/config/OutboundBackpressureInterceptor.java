@@ -0,0 +1,237 @@
+package com.simplechat.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes queued for each session on the client outbound channel and sheds load from sessions that fall behind.
+ * Past the drop threshold, ephemeral events (typing, presence, search) are discarded. Past the coalesce threshold,
+ * events sent with {@link #coalescing(String)} headers are held and only the latest per key is delivered once the
+ * backlog drains. Past the disconnect threshold the session is closed. Chat messages are never dropped;
+ * clients reload history when they reconnect.
+ */
+@Component
+public class OutboundBackpressureInterceptor implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    public static final String COALESCE_KEY_HEADER = "coalesceKey";
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundBackpressureInterceptor.class);
+
+    private final TaskScheduler taskScheduler;
+    private final long dropThreshold;
+    private final long coalesceThreshold;
+    private final long disconnectThreshold;
+    private final Set<String> ephemeralDestinations;
+
+    private final Map<String, SessionBacklog> backlogBySession = new ConcurrentHashMap<>();
+
+    private final DistributionSummary sessionBufferedBytes;
+    private final Counter dropped;
+    private final Counter coalesced;
+    private final Counter disconnected;
+
+    public OutboundBackpressureInterceptor(
+            // Lazy because the scheduler is declared in WebSocketConfig, which depends on this interceptor.
+            @Lazy @Qualifier("realtimeTaskScheduler") TaskScheduler taskScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.backpressure.drop-bytes:32768}") long dropThreshold,
+            @Value("${app.websocket.backpressure.coalesce-bytes:65536}") long coalesceThreshold,
+            @Value("${app.websocket.backpressure.disconnect-bytes:262144}") long disconnectThreshold,
+            @Value("${app.websocket.backpressure.ephemeral-destinations:/user/queue/typing,/user/queue/presence,/user/queue/search}")
+            Set<String> ephemeralDestinations
+    ) {
+        this.taskScheduler = taskScheduler;
+        this.dropThreshold = dropThreshold;
+        this.coalesceThreshold = coalesceThreshold;
+        this.disconnectThreshold = disconnectThreshold;
+        this.ephemeralDestinations = Set.copyOf(ephemeralDestinations);
+
+        this.sessionBufferedBytes = DistributionSummary.builder("websocket.outbound.session.buffered")
+                .description("Bytes queued for a session on the client outbound channel, sampled on every enqueue")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.buffered", this, OutboundBackpressureInterceptor::totalBufferedBytes)
+                .description("Bytes queued on the client outbound channel across all sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.buffered.max", this, OutboundBackpressureInterceptor::maxBufferedBytes)
+                .description("Bytes queued for the most backlogged session")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.dropped = shedCounter(meterRegistry, "drop");
+        this.coalesced = shedCounter(meterRegistry, "coalesce");
+        this.disconnected = shedCounter(meterRegistry, "disconnect");
+    }
+
+    /**
+     * Headers for {@code SimpMessagingTemplate.convertAndSend} marking an event that a later event with the same key
+     * fully supersedes, so a backlogged session only needs the latest one.
+     */
+    public static MessageHeaders coalescing(String key) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(COALESCE_KEY_HEADER, key);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionBacklog backlog = backlogFor(message);
+        if (backlog == null) {
+            return message;
+        }
+        if (backlog.closing) {
+            return null;
+        }
+
+        long pending = backlog.bytes.get();
+
+        if (pending >= disconnectThreshold) {
+            close(backlog, pending);
+            return null;
+        }
+        if (pending >= dropThreshold && isEphemeral(message)) {
+            dropped.increment();
+            return null;
+        }
+        String coalesceKey = (String) message.getHeaders().get(COALESCE_KEY_HEADER);
+        if (pending >= coalesceThreshold && coalesceKey != null) {
+            backlog.held.put(coalesceKey, message);
+            coalesced.increment();
+            return null;
+        }
+
+        sessionBufferedBytes.record(backlog.bytes.addAndGet(sizeOf(message)));
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        SessionBacklog backlog = backlogFor(message);
+        if (backlog == null) {
+            return;
+        }
+
+        long remaining = backlog.bytes.addAndGet(-sizeOf(message));
+        if (remaining < coalesceThreshold && !backlog.held.isEmpty() && !backlog.closing) {
+            for (String key : backlog.held.keySet()) {
+                Message<?> latest = backlog.held.remove(key);
+                if (latest != null) {
+                    channel.send(latest);
+                }
+            }
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                backlogBySession.put(session.getId(), new SessionBacklog(session));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                backlogBySession.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private SessionBacklog backlogFor(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? backlogBySession.get(sessionId) : null;
+    }
+
+    private boolean isEphemeral(Message<?> message) {
+        // UserDestinationMessageHandler keeps the /user/... destination the client subscribed to as a native header;
+        // the destination itself has by then been resolved to a per-session queue.
+        String destination = NativeMessageHeaderAccessor.getFirstNativeHeader(
+                SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, message.getHeaders());
+        if (destination == null) {
+            destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        }
+        return destination != null && ephemeralDestinations.contains(destination);
+    }
+
+    private void close(SessionBacklog backlog, long pending) {
+        backlog.closing = true;
+        backlog.held.clear();
+        disconnected.increment();
+        log.warn("Closing WebSocket session {} with {} bytes queued", backlog.session.getId(), pending);
+
+        // Closing can block behind a stalled write, so it must not hold up the outbound channel.
+        taskScheduler.schedule(() -> {
+            try {
+                backlog.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("Failed to close WebSocket session {}", backlog.session.getId(), e);
+            }
+        }, Instant.now());
+    }
+
+    private static int sizeOf(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+    }
+
+    private double totalBufferedBytes() {
+        return backlogBySession.values().stream().mapToLong(backlog -> backlog.bytes.get()).sum();
+    }
+
+    private double maxBufferedBytes() {
+        return backlogBySession.values().stream().mapToLong(backlog -> backlog.bytes.get()).max().orElse(0);
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String policy) {
+        return Counter.builder("websocket.outbound.shed")
+                .description("Outbound frames not delivered to a backlogged session")
+                .tag("policy", policy)
+                .register(meterRegistry);
+    }
+
+    private static final class SessionBacklog {
+
+        private final WebSocketSession session;
+        private final AtomicLong bytes = new AtomicLong();
+        private final Map<String, Message<?>> held = new ConcurrentHashMap<>();
+        private volatile boolean closing;
+
+        private SessionBacklog(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.simplechat.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Remembers users whose data was just written, so their reads skip the replica until it has caught up.
+ * Without a replica configured, reads go to the primary anyway and this is a no-op.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final long windowMillis;
+    private final Map<Long, Long> lastWriteAtByUserId = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(@Value("${app.datasource.replica.read-your-writes-ms:5000}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void recordWrite(Long... userIds) {
+        long now = System.currentTimeMillis();
+        for (Long userId : userIds) {
+            lastWriteAtByUserId.put(userId, now);
+        }
+    }
+
+    /**
+     * Runs a read for the user, on the primary if the user's data changed within the lag window.
+     */
+    public <T> T read(Long userId, Supplier<T> work) {
+        Long lastWriteAt = lastWriteAtByUserId.get(userId);
+        if (lastWriteAt != null && System.currentTimeMillis() - lastWriteAt < windowMillis) {
+            return ReplicaRoutingDataSource.onPrimary(work);
+        }
+        return work.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.read-your-writes-ms:5000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        lastWriteAtByUserId.values().removeIf(lastWriteAt -> lastWriteAt < cutoff);
+    }
+}
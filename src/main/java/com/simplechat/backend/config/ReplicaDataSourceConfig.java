@@ -0,0 +1,117 @@
+package com.simplechat.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Adds a read replica when app.datasource.replica.url is set.
+ * Services marked @Transactional(readOnly = true) then read from the replica; all writes stay on the primary.
+ * The url is checked when the context starts rather than with a condition, because AOT and native images fix
+ * conditions at build time and would ignore a replica configured in the container.
+ */
+@Configuration
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Sized to the threads that can hold a primary connection at once: the STOMP inbound workers, a share of the
+     * Tomcat request threads, the application task executor that inserts sessions after a login, and both
+     * schedulers. Sizing it to one of them lets a long maintenance job or a burst of logins starve the others.
+     * The password hashing pool only runs BCrypt and holds no connection. An explicit
+     * spring.datasource.hikari.maximum-pool-size still wins, since it is bound after this method returns.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(
+            DataSourceProperties primaryDataSourceProperties,
+            @Value("${app.websocket.inbound-pool-size:16}") int inboundPoolSize,
+            @Value("${app.datasource.http-connections:8}") int httpConnections,
+            @Value("${app.async.pool-size:4}") int asyncPoolSize,
+            @Value("${app.scheduling.pool-size:2}") int schedulingPoolSize,
+            @Value("${app.scheduling.maintenance-pool-size:2}") int maintenancePoolSize
+    ) {
+        HikariDataSource dataSource = primaryDataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        dataSource.setMaximumPoolSize(inboundPoolSize + httpConnections + asyncPoolSize + schedulingPoolSize + maintenancePoolSize);
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            DataSourceProperties primaryDataSourceProperties,
+            @Qualifier("replicaDataSourceProperties") DataSourceProperties replicaDataSourceProperties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        if (!StringUtils.hasText(replicaDataSourceProperties.getUrl())) {
+            return primaryDataSource;
+        }
+
+        HikariDataSource replicaDataSource = replicaDataSource(
+                primaryDataSourceProperties, replicaDataSourceProperties, environment, meterRegistry);
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource();
+        routingDataSource.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.REPLICA, replicaDataSource
+        ));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Builds the replica pool by hand, since it only exists when configured; binding and metrics are done here too.
+     */
+    private static HikariDataSource replicaDataSource(
+            DataSourceProperties primaryDataSourceProperties,
+            DataSourceProperties replicaDataSourceProperties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        // The replica usually shares the primary's credentials.
+        if (replicaDataSourceProperties.getUsername() == null) {
+            replicaDataSourceProperties.setUsername(primaryDataSourceProperties.getUsername());
+            replicaDataSourceProperties.setPassword(primaryDataSourceProperties.getPassword());
+        }
+
+        HikariDataSource dataSource = replicaDataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("app.datasource.replica.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        meterRegistry.ifAvailable(registry -> dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return dataSource;
+    }
+}
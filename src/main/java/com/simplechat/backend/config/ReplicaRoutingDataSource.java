@@ -0,0 +1,37 @@
+package com.simplechat.backend.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replica pool and everything else to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy so the lookup happens after the transaction has started.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && !PINNED_TO_PRIMARY.get() ? REPLICA : PRIMARY;
+    }
+
+    /**
+     * Runs the given work against the primary even inside read-only transactions.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean previous = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(true);
+        try {
+            return work.get();
+        } finally {
+            PINNED_TO_PRIMARY.set(previous);
+        }
+    }
+}
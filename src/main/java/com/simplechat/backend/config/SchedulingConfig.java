@@ -0,0 +1,49 @@
+package com.simplechat.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Threads for {@code @Scheduled} jobs. Short periodic ticks (session expiry, revocation polls, receipt flushes, cache
+ * eviction) run on {@code taskScheduler}. Jobs that can run for minutes or wait on other nodes (archiving, search
+ * backfill, partition creation, purges) name {@code maintenanceTaskScheduler}, so they never hold up a tick.
+ * Without a bean named {@code taskScheduler}, the several TaskScheduler beans of the WebSocket config leave Spring
+ * with one private thread for all of them. The default is picked by that name rather than set through a
+ * {@code SchedulingConfigurer}, which would replace the router that honours {@code @Scheduled(scheduler = ...)}.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String MAINTENANCE = "maintenanceTaskScheduler";
+
+    private final int poolSize;
+    private final int maintenancePoolSize;
+
+    public SchedulingConfig(
+            @Value("${app.scheduling.pool-size:2}") int poolSize,
+            @Value("${app.scheduling.maintenance-pool-size:2}") int maintenancePoolSize
+    ) {
+        this.poolSize = poolSize;
+        this.maintenancePoolSize = maintenancePoolSize;
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        return scheduler(poolSize, "scheduling-");
+    }
+
+    @Bean(MAINTENANCE)
+    public ThreadPoolTaskScheduler maintenanceTaskScheduler() {
+        return scheduler(maintenancePoolSize, "maintenance-");
+    }
+
+    private static ThreadPoolTaskScheduler scheduler(int poolSize, String threadNamePrefix) {
+        ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(poolSize);
+        taskScheduler.setThreadNamePrefix(threadNamePrefix);
+        taskScheduler.initialize();
+        return taskScheduler;
+    }
+}
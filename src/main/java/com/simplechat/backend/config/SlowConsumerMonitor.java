@@ -0,0 +1,45 @@
+package com.simplechat.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+/**
+ * Counts sessions closed because they could not keep up with outbound traffic.
+ * Spring closes such a session with {@link CloseStatus#SESSION_NOT_RELIABLE} once it exceeds
+ * the send time or send buffer limits set in {@link WebSocketConfig}.
+ */
+@Component
+public class SlowConsumerMonitor implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowConsumerMonitor.class);
+
+    private final Counter slowConsumerCloses;
+
+    public SlowConsumerMonitor(MeterRegistry meterRegistry) {
+        this.slowConsumerCloses = Counter.builder("websocket.sessions.closed.slow")
+                .description("Sessions closed for exceeding the send time or send buffer limit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus)) {
+                    slowConsumerCloses.increment();
+                    log.warn("Closed slow WebSocket session {}", session.getId());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+}
@@ -1,23 +1,65 @@
 package com.simplechat.backend.config;
 
+import com.simplechat.backend.jwt.StompSessionRegistry;
 import com.simplechat.backend.jwt.WebSocketAuthInterceptor;
+import com.simplechat.backend.ratelimit.RateLimitChannelInterceptor;
+import com.simplechat.backend.wire.NegotiatedPayloadConverter;
+import com.simplechat.backend.wire.SockJsSessionMarker;
+import com.simplechat.backend.wire.WireFormatInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthInterceptor authInterceptor;
+    private final RateLimitChannelInterceptor rateLimitInterceptor;
+    private final WireFormatInterceptor wireFormatInterceptor;
+    private final SlowConsumerMonitor slowConsumerMonitor;
+    private final OutboundBackpressureInterceptor outboundBackpressureInterceptor;
+    private final StompSessionRegistry sessionRegistry;
+    private final int inboundPoolSize;
+    private final boolean permessageDeflate;
+    private final int sendTimeLimitMillis;
+    private final int sendBufferSizeLimit;
+    private final int timeToFirstMessageMillis;
 
-    public WebSocketConfig(WebSocketAuthInterceptor authInterceptor) {
+    public WebSocketConfig(
+            WebSocketAuthInterceptor authInterceptor,
+            RateLimitChannelInterceptor rateLimitInterceptor,
+            WireFormatInterceptor wireFormatInterceptor,
+            SlowConsumerMonitor slowConsumerMonitor,
+            OutboundBackpressureInterceptor outboundBackpressureInterceptor,
+            StompSessionRegistry sessionRegistry,
+            @Value("${app.websocket.inbound-pool-size:16}") int inboundPoolSize,
+            @Value("${app.websocket.permessage-deflate:true}") boolean permessageDeflate,
+            @Value("${app.websocket.send-time-limit-ms:5000}") int sendTimeLimitMillis,
+            @Value("${app.websocket.send-buffer-size-limit:262144}") int sendBufferSizeLimit,
+            @Value("${app.websocket.time-to-first-message-ms:10000}") int timeToFirstMessageMillis
+    ) {
         this.authInterceptor = authInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.wireFormatInterceptor = wireFormatInterceptor;
+        this.slowConsumerMonitor = slowConsumerMonitor;
+        this.outboundBackpressureInterceptor = outboundBackpressureInterceptor;
+        this.sessionRegistry = sessionRegistry;
+        this.inboundPoolSize = inboundPoolSize;
+        this.permessageDeflate = permessageDeflate;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.timeToFirstMessageMillis = timeToFirstMessageMillis;
     }
 
     @Bean
@@ -29,6 +71,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         return taskScheduler;
     }
 
+    @Bean
+    public ThreadPoolTaskScheduler realtimeTaskScheduler() {
+        ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(2);
+        taskScheduler.setThreadNamePrefix("realtime-");
+        taskScheduler.setRemoveOnCancelPolicy(true);
+        taskScheduler.initialize();
+        return taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/topic", "/queue")
@@ -41,11 +93,49 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        CompressionHandshakeHandler handshakeHandler = new CompressionHandshakeHandler(permessageDeflate);
+
+        // Plain WebSocket: no SockJS framing, no /info round trip, and binary frames for compact payloads.
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(handshakeHandler);
+
+        // Fallback for clients behind proxies that block the WebSocket upgrade.
+        registry.addEndpoint("/ws")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(handshakeHandler)
+                .addInterceptors(new SockJsSessionMarker())
+                .withSockJS();
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // A session that cannot drain its outbound buffer within these limits is closed instead of buffering without bound.
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setTimeToFirstMessage(timeToFirstMessageMillis)
+                .addDecoratorFactory(slowConsumerMonitor)
+                .addDecoratorFactory(outboundBackpressureInterceptor)
+                .addDecoratorFactory(sessionRegistry);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(authInterceptor);
+        registration.interceptors(authInterceptor, rateLimitInterceptor);
+        // The production profile sizes the connection pool from the same value.
+        registration.taskExecutor().corePoolSize(inboundPoolSize).maxPoolSize(inboundPoolSize);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Backpressure accounting runs after encoding so it sees the bytes actually queued for each session.
+        registration.interceptors(wireFormatInterceptor, outboundBackpressureInterceptor);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Ahead of the Jackson converter, which would serialize negotiated payloads as plain JSON.
+        messageConverters.add(0, new NegotiatedPayloadConverter());
+        return true;
     }
 }
\ No newline at end of file
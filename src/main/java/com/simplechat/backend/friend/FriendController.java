@@ -2,21 +2,24 @@ package com.simplechat.backend.friend;
 
 import com.simplechat.backend.user.User;
 import com.simplechat.backend.user.UserDto;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/friends")
 public class FriendController {
 
     private final FriendService friendService;
+    private final FriendListVersions friendListVersions;
 
-    public FriendController(FriendService friendService) {
+    public FriendController(FriendService friendService, FriendListVersions friendListVersions) {
         this.friendService = friendService;
+        this.friendListVersions = friendListVersions;
     }
 
     @PostMapping("/request/{receiverId}")
@@ -33,16 +36,20 @@ public class FriendController {
         }
     }
 
+    /**
+     * Answers 304 from memory when the client's {@code If-None-Match} still names the current list.
+     */
     @GetMapping("/pending")
-    public ResponseEntity<List<FriendRequestDto>> getPendingRequests(Authentication authentication) {
+    public ResponseEntity<List<FriendRequestDto>> getPendingRequests(Authentication authentication, WebRequest webRequest) {
         User currentUser = (User) authentication.getPrincipal();
-        List<FriendRequest> requests = friendService.getPendingRequests(currentUser);
-
-        List<FriendRequestDto> dtos = requests.stream()
-                .map(FriendRequestDto::fromEntity)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(dtos);
+        String eTag = friendListVersions.current(FriendListVersions.FriendList.PENDING, currentUser.getId());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(friendService.getPendingRequests(currentUser));
     }
 
     @PostMapping("/respond/{requestId}")
@@ -71,9 +78,16 @@ public class FriendController {
     }
 
     @GetMapping
-    public ResponseEntity<List<UserDto>> getFriends(Authentication authentication) {
+    public ResponseEntity<List<UserDto>> getFriends(Authentication authentication, WebRequest webRequest) {
         User currentUser = (User) authentication.getPrincipal();
+        String eTag = friendListVersions.current(FriendListVersions.FriendList.FRIENDS, currentUser.getId());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         List<UserDto> friends = friendService.getFriends(currentUser);
-        return ResponseEntity.ok(friends);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(friends);
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.simplechat.backend.friend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ETags for each user's friend list and pending requests, so an unchanged list is answered with 304 from memory.
+ * A tag is handed out before a list is read and stays current until a friend request of the user changes on this node,
+ * or for the TTL otherwise: changes made on another node are picked up as late as {@link FriendshipCache} picks them up.
+ * Tags carry a per-process prefix, so a tag from another node or an earlier run never matches.
+ */
+@Component
+public class FriendListVersions {
+
+    public enum FriendList { FRIENDS, PENDING }
+
+    private final String prefix = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong nextVersion = new AtomicLong();
+    private final long ttlMillis;
+    private final Map<Key, Version> versions = new ConcurrentHashMap<>();
+
+    public FriendListVersions(@Value("${app.friends.cache-ttl-ms:60000}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * The current tag of the user's list. Call it before reading the list, so a change during the read retires the tag.
+     */
+    public String current(FriendList list, Long userId) {
+        long now = System.currentTimeMillis();
+        Version version = versions.compute(new Key(list, userId), (key, existing) ->
+                existing == null || existing.issuedAt() + ttlMillis < now
+                        ? new Version(prefix + "-" + nextVersion.incrementAndGet(), now)
+                        : existing);
+        return version.tag();
+    }
+
+    public void invalidate(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            for (FriendList list : FriendList.values()) {
+                versions.remove(new Key(list, userId));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.friends.cache-ttl-ms:60000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        versions.values().removeIf(version -> version.issuedAt() < cutoff);
+    }
+
+    private record Key(FriendList list, Long userId) {}
+
+    private record Version(String tag, long issuedAt) {}
+}
@@ -0,0 +1,41 @@
+package com.simplechat.backend.friend;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Tells both users about a new or answered friend request on {@code /user/queue/friends}, so clients need not poll,
+ * and retires their cached friend lists and ETags. Runs after commit, so neither a client that reloads on the event
+ * nor a reader that refills the cache can see the state before the change.
+ */
+@Component
+public class FriendNotifier {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FriendListVersions friendListVersions;
+    private final FriendshipCache friendshipCache;
+
+    public FriendNotifier(
+            SimpMessagingTemplate messagingTemplate,
+            FriendListVersions friendListVersions,
+            FriendshipCache friendshipCache
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.friendListVersions = friendListVersions;
+        this.friendshipCache = friendshipCache;
+    }
+
+    @TransactionalEventListener
+    public void onFriendRequestChanged(FriendRequestChangedEvent event) {
+        FriendRequestDto request = event.request();
+        List<Long> userIds = List.of(request.sender().id(), request.receiver().id());
+        friendshipCache.invalidate(userIds);
+        friendListVersions.invalidate(userIds);
+
+        messagingTemplate.convertAndSend("/user/" + request.receiver().username() + "/queue/friends", request);
+        messagingTemplate.convertAndSend("/user/" + request.sender().username() + "/queue/friends", request);
+    }
+}
@@ -4,19 +4,24 @@ import com.simplechat.backend.user.User;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
+/**
+ * The friendship state between two users; there is at most one row per pair, whichever of them sent the request.
+ * The pair is stored in canonical order, lower user id first, so the unique index covers both directions.
+ */
 @Entity
-@Table(name = "friend_requests")
+@Table(name = "friend_requests",
+        uniqueConstraints = @UniqueConstraint(name = "uq_friend_requests_pair", columnNames = {"user_low_id", "user_high_id"}))
 public class FriendRequest {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
@@ -27,6 +32,21 @@ public class FriendRequest {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "user_low_id", nullable = false, updatable = false)
+    private Long userLowId;
+
+    @Column(name = "user_high_id", nullable = false, updatable = false)
+    private Long userHighId;
+
+    @Version
+    private long version;
+
+    @PrePersist
+    void assignPair() {
+        userLowId = Math.min(sender.getId(), receiver.getId());
+        userHighId = Math.max(sender.getId(), receiver.getId());
+    }
+
     public Long getId() {
         return id;
     }
@@ -66,4 +86,16 @@ public class FriendRequest {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Long getUserLowId() {
+        return userLowId;
+    }
+
+    public Long getUserHighId() {
+        return userHighId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,6 @@
+package com.simplechat.backend.friend;
+
+/**
+ * Published inside the transaction that creates or answers a friend request; acted on once it commits.
+ */
+public record FriendRequestChangedEvent(FriendRequestDto request) {}
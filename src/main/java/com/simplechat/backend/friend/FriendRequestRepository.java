@@ -1,6 +1,10 @@
 package com.simplechat.backend.friend;
 
+import com.simplechat.backend.user.UserDto;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,11 +13,45 @@ import java.util.Optional;
 @Repository
 public interface FriendRequestRepository extends JpaRepository<FriendRequest, Long> {
 
-    List<FriendRequest> findByReceiverId(Long receiverId);
+    @Query("""
+            SELECT new com.simplechat.backend.friend.FriendRequestRow(
+                fr.id, s.id, s.username, r.id, r.username, fr.status, fr.createdAt)
+            FROM FriendRequest fr JOIN fr.sender s JOIN fr.receiver r
+            WHERE r.id = :receiverId AND fr.status = :status
+            """)
+    List<FriendRequestRow> findRowsByReceiverIdAndStatus(
+            @Param("receiverId") Long receiverId,
+            @Param("status") FriendStatus status
+    );
 
-    List<FriendRequest> findBySenderId(Long senderId);
+    @Query("""
+            SELECT new com.simplechat.backend.user.UserDto(r.id, r.username)
+            FROM FriendRequest fr JOIN fr.receiver r
+            WHERE fr.sender.id = :userId AND fr.status = com.simplechat.backend.friend.FriendStatus.ACCEPTED
+            """)
+    List<UserDto> findAcceptedReceivers(@Param("userId") Long userId);
 
-    List<FriendRequest> findByReceiverIdAndStatus(Long receiverId, FriendStatus status);
+    @Query("""
+            SELECT new com.simplechat.backend.user.UserDto(s.id, s.username)
+            FROM FriendRequest fr JOIN fr.sender s
+            WHERE fr.receiver.id = :userId AND fr.status = com.simplechat.backend.friend.FriendStatus.ACCEPTED
+            """)
+    List<UserDto> findAcceptedSenders(@Param("userId") Long userId);
 
-    Optional<FriendRequest> findBySenderIdAndReceiverId(Long senderId, Long receiverId);
-}
\ No newline at end of file
+    @EntityGraph(attributePaths = {"sender", "receiver"})
+    Optional<FriendRequest> findWithUsersById(Long id);
+
+    /**
+     * The receiver and the request between the pair, in one query; empty if the receiver does not exist.
+     */
+    @Query("""
+            SELECT new com.simplechat.backend.friend.FriendRequestTarget(u, fr)
+            FROM User u LEFT JOIN FriendRequest fr ON fr.userLowId = :userLowId AND fr.userHighId = :userHighId
+            WHERE u.id = :receiverId
+            """)
+    Optional<FriendRequestTarget> findTarget(
+            @Param("receiverId") Long receiverId,
+            @Param("userLowId") Long userLowId,
+            @Param("userHighId") Long userHighId
+    );
+}
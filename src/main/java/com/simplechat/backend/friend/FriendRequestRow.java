@@ -0,0 +1,28 @@
+package com.simplechat.backend.friend;
+
+import com.simplechat.backend.user.UserDto;
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of a friend request and both usernames, read without loading either {@code User} entity.
+ */
+public record FriendRequestRow(
+    Long id,
+    Long senderId,
+    String senderUsername,
+    Long receiverId,
+    String receiverUsername,
+    FriendStatus status,
+    LocalDateTime createdAt
+) {
+
+    public FriendRequestDto toDto() {
+        return new FriendRequestDto(
+            id,
+            new UserDto(senderId, senderUsername),
+            new UserDto(receiverId, receiverUsername),
+            status.name(),
+            createdAt
+        );
+    }
+}
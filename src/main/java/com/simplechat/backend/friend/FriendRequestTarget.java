@@ -0,0 +1,8 @@
+package com.simplechat.backend.friend;
+
+import com.simplechat.backend.user.User;
+
+/**
+ * The receiver of a new friend request and the request already between the two users, or {@code null} if there is none.
+ */
+public record FriendRequestTarget(User receiver, FriendRequest request) {}
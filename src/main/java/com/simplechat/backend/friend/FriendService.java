@@ -1,83 +1,80 @@
 package com.simplechat.backend.friend;
 
+import com.simplechat.backend.config.ReadYourWritesTracker;
 import com.simplechat.backend.user.User;
 import com.simplechat.backend.user.UserDto;
-import com.simplechat.backend.user.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Stream;
 
 @Service
 public class FriendService {
 
     private final FriendRequestRepository friendRequestRepository;
-    private final UserRepository userRepository;
-
-    public FriendService(FriendRequestRepository friendRequestRepository, UserRepository userRepository) {
+    private final FriendshipCache friendshipCache;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FriendService(
+            FriendRequestRepository friendRequestRepository,
+            FriendshipCache friendshipCache,
+            ReadYourWritesTracker readYourWritesTracker,
+            ApplicationEventPublisher eventPublisher
+    ) {
         this.friendRequestRepository = friendRequestRepository;
-        this.userRepository = userRepository;
+        this.friendshipCache = friendshipCache;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.eventPublisher = eventPublisher;
     }
 
+    /**
+     * Sends a request, or re-opens a declined one between the two users in the sender's direction.
+     * One query reads the receiver and any request between the pair, and one statement writes it:
+     * the unique pair index turns away a concurrent insert, and the version check a concurrent update.
+     */
     @Transactional
     public FriendRequest sendFriendRequest(User sender, Long receiverId) {
-        User receiver = userRepository.findById(receiverId)
-                .orElseThrow(() -> new IllegalArgumentException("Receiver not found"));
-
         if (sender.getId().equals(receiverId)) {
             throw new IllegalStateException("You cannot send a friend request to yourself.");
         }
 
-        Optional<FriendRequest> existingRequest = friendRequestRepository
-                .findBySenderIdAndReceiverId(sender.getId(), receiverId);
-
-        if (existingRequest.isPresent()) {
-            FriendRequest req = existingRequest.get();
-
-            if (req.getStatus() == FriendStatus.PENDING) {
-                throw new IllegalStateException("Friend request already pending.");
-            }
-
-            if (req.getStatus() == FriendStatus.ACCEPTED) {
-                throw new IllegalStateException("You are already friends.");
-            }
-
-            if (req.getStatus() == FriendStatus.DECLINED) {
-                req.setStatus(FriendStatus.PENDING);
-                req.setCreatedAt(LocalDateTime.now());
-                return friendRequestRepository.save(req);
-            }
-        }
-
-        Optional<FriendRequest> reverseRequest = friendRequestRepository
-                .findBySenderIdAndReceiverId(receiverId, sender.getId());
-
-        if (reverseRequest.isPresent()) {
-            FriendRequest req = reverseRequest.get();
-            
-            if (req.getStatus() == FriendStatus.PENDING) {
-                throw new IllegalStateException("This user has already sent you a request. Check your inbox!");
-            }
-            if (req.getStatus() == FriendStatus.ACCEPTED) {
-                throw new IllegalStateException("You are already friends.");
-            }
+        FriendRequestTarget target = friendRequestRepository
+                .findTarget(receiverId, Math.min(sender.getId(), receiverId), Math.max(sender.getId(), receiverId))
+                .orElseThrow(() -> new IllegalArgumentException("Receiver not found"));
+        FriendRequest request = target.request();
+
+        if (request == null) {
+            request = new FriendRequest();
+        } else if (request.getStatus() == FriendStatus.ACCEPTED) {
+            throw new IllegalStateException("You are already friends.");
+        } else if (request.getStatus() == FriendStatus.PENDING) {
+            throw new IllegalStateException(request.getSender().getId().equals(sender.getId())
+                    ? "Friend request already pending."
+                    : "This user has already sent you a request. Check your inbox!");
+        } else if (request.getStatus() == FriendStatus.BLOCKED) {
+            throw new IllegalStateException("You cannot send a friend request to this user.");
         }
 
-        FriendRequest newRequest = new FriendRequest();
-        newRequest.setSender(sender);
-        newRequest.setReceiver(receiver);
-        newRequest.setStatus(FriendStatus.PENDING);
-        newRequest.setCreatedAt(LocalDateTime.now());
+        request.setSender(sender);
+        request.setReceiver(target.receiver());
+        request.setStatus(FriendStatus.PENDING);
+        request.setCreatedAt(LocalDateTime.now());
 
-        return friendRequestRepository.save(newRequest);
+        FriendRequest savedRequest = write(request);
+        readYourWritesTracker.recordWrite(sender.getId(), receiverId);
+        return published(savedRequest);
     }
 
     @Transactional
     public FriendRequest respondToFriendRequest(User currentUser, Long requestId, FriendStatus newStatus) {
-        FriendRequest request = friendRequestRepository.findById(requestId)
+        FriendRequest request = friendRequestRepository.findWithUsersById(requestId)
                 .orElseThrow(() -> new IllegalArgumentException("Request not found"));
 
         if (!request.getReceiver().getId().equals(currentUser.getId())) {
@@ -89,28 +86,55 @@ public class FriendService {
         }
 
         request.setStatus(newStatus);
-        return friendRequestRepository.save(request);
+        FriendRequest savedRequest = write(request);
+        readYourWritesTracker.recordWrite(request.getSender().getId(), request.getReceiver().getId());
+
+        return published(savedRequest);
     }
 
-    public List<FriendRequest> getPendingRequests(User currentUser) {
-        return friendRequestRepository.findByReceiverIdAndStatus(currentUser.getId(), FriendStatus.PENDING);
+    @Transactional(readOnly = true)
+    public List<FriendRequestDto> getPendingRequests(User currentUser) {
+        return readYourWritesTracker.read(currentUser.getId(),
+                () -> friendRequestRepository.findRowsByReceiverIdAndStatus(currentUser.getId(), FriendStatus.PENDING)
+                        .stream()
+                        .map(FriendRequestRow::toDto)
+                        .toList());
     }
 
+    @Transactional(readOnly = true)
     public List<UserDto> getFriends(User currentUser) {
-        List<UserDto> friendsFromSent = friendRequestRepository.findBySenderId(currentUser.getId())
-                .stream()
-                .filter(req -> req.getStatus() == FriendStatus.ACCEPTED)
-                .map(FriendRequest::getReceiver)
-                .map(UserDto::fromUser)
-                .toList();
-
-        List<UserDto> friendsFromReceived = friendRequestRepository.findByReceiverId(currentUser.getId())
-                .stream()
-                .filter(req -> req.getStatus() == FriendStatus.ACCEPTED)
-                .map(FriendRequest::getSender)
-                .map(UserDto::fromUser)
-                .toList();
-
-        return Stream.concat(friendsFromSent.stream(), friendsFromReceived.stream()).toList();
+        return readYourWritesTracker.read(currentUser.getId(), () -> getFriends(currentUser.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserDto> getFriends(Long userId) {
+        return Stream.concat(
+                friendRequestRepository.findAcceptedReceivers(userId).stream(),
+                friendRequestRepository.findAcceptedSenders(userId).stream()
+        ).toList();
+    }
+
+    /**
+     * Friends of the given user keyed by id, served from {@link FriendshipCache}.
+     */
+    public Map<Long, UserDto> getCachedFriends(Long userId) {
+        return friendshipCache.get(userId, this::getFriends);
+    }
+
+    public boolean areFriends(Long userId, Long otherUserId) {
+        return getCachedFriends(userId).containsKey(otherUserId);
+    }
+
+    private FriendRequest write(FriendRequest request) {
+        try {
+            return friendRequestRepository.saveAndFlush(request);
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            throw new IllegalStateException("A friend request between you was just sent or answered. Please refresh.");
+        }
+    }
+
+    private FriendRequest published(FriendRequest request) {
+        eventPublisher.publishEvent(new FriendRequestChangedEvent(FriendRequestDto.fromEntity(request)));
+        return request;
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.simplechat.backend.friend;
+
+import com.simplechat.backend.user.UserDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Short-lived per-user friend lists for hot realtime paths (typing, presence).
+ * Entries are dropped when a friendship changes and expire after a TTL otherwise.
+ */
+@Component
+public class FriendshipCache {
+
+    private final long ttlMillis;
+    private final Map<Long, CachedFriends> friendsByUserId = new ConcurrentHashMap<>();
+
+    public FriendshipCache(@Value("${app.friends.cache-ttl-ms:60000}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Map<Long, UserDto> get(Long userId, Function<Long, List<UserDto>> loader) {
+        long now = System.currentTimeMillis();
+        CachedFriends cached = friendsByUserId.get(userId);
+
+        if (cached == null || cached.loadedAt() + ttlMillis < now) {
+            Map<Long, UserDto> friendsById = new LinkedHashMap<>();
+            loader.apply(userId).forEach(friend -> friendsById.put(friend.id(), friend));
+
+            cached = new CachedFriends(Map.copyOf(friendsById), now);
+            friendsByUserId.put(userId, cached);
+        }
+        return cached.friendsById();
+    }
+
+    public void invalidate(Collection<Long> userIds) {
+        userIds.forEach(friendsByUserId::remove);
+    }
+
+    @Scheduled(fixedDelayString = "${app.friends.cache-ttl-ms:60000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        friendsByUserId.values().removeIf(cached -> cached.loadedAt() < cutoff);
+    }
+
+    private record CachedFriends(Map<Long, UserDto> friendsById, long loadedAt) {}
+}
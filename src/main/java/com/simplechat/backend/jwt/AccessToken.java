@@ -0,0 +1,29 @@
+package com.simplechat.backend.jwt;
+
+import com.simplechat.backend.user.User;
+
+import java.time.Instant;
+
+/**
+ * The verified claims of an access token.
+ */
+public record AccessToken(
+        Long userId,
+        String username,
+        String sessionId,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+
+    /**
+     * The principal for an authenticated request, built from the claims alone.
+     * Only the id and username are set; code that needs more of the user must load it.
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(username);
+        user.setEnabled(true);
+        return user;
+    }
+}
@@ -0,0 +1,80 @@
+package com.simplechat.backend.jwt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hashed timing wheel of deadlines keyed by string. Each tick visits only the slot for that tick, so
+ * expiring a key costs O(1) no matter how many keys are scheduled. A deadline further out than one turn of
+ * the wheel stays in its slot until the turn it is due. Scheduling and advancing are rare (once per
+ * connect and once per tick), so a monitor keeps the slot bookkeeping simple.
+ */
+final class ExpiryWheel {
+
+    private final long tickMillis;
+    private final List<Map<String, Long>> slots;
+    private final Map<String, Long> deadlineTickByKey = new HashMap<>();
+    private long currentTick;
+
+    ExpiryWheel(long tickMillis, int slotCount, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules {@code key} to expire at {@code deadlineMillis}, replacing any earlier deadline for it.
+     * A deadline already in the past fires on the next tick.
+     */
+    synchronized void schedule(String key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        deadlineTickByKey.put(key, deadlineTick);
+        slotFor(deadlineTick).put(key, deadlineTick);
+    }
+
+    synchronized void cancel(String key) {
+        Long deadlineTick = deadlineTickByKey.remove(key);
+        if (deadlineTick != null) {
+            slotFor(deadlineTick).remove(key);
+        }
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis} and returns the keys whose deadline has passed.
+     */
+    synchronized List<String> advance(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            Map<String, Long> slot = slotFor(currentTick);
+            if (slot.isEmpty()) {
+                continue;
+            }
+            slot.entrySet().removeIf(entry -> {
+                if (entry.getValue() > currentTick) {
+                    return false;
+                }
+                deadlineTickByKey.remove(entry.getKey());
+                expired.add(entry.getKey());
+                return true;
+            });
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return deadlineTickByKey.size();
+    }
+
+    private Map<String, Long> slotFor(long tick) {
+        return slots.get((int) (tick % slots.size()));
+    }
+}
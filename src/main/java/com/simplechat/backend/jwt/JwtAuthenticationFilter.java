@@ -1,6 +1,6 @@
 package com.simplechat.backend.jwt;
 
-import com.simplechat.backend.user.AppUserDetailsService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,15 +15,19 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Authenticates requests from the access token alone: the signature, expiry and the in-memory
+ * revocation list are checked, but the user is not loaded from the database.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final AppUserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
 
-    public JwtAuthenticationFilter(JwtService jwtService, AppUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, TokenRevocationList revocationList) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
     }
 
     @Override
@@ -34,24 +38,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            AccessToken token = parse(authHeader.substring(7));
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
+            if (token != null && !revocationList.isRevoked(token)) {
+                UserDetails userDetails = token.toUser();
+                // The token is kept as the credentials so logout knows which session to end
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
-                        null,
+                        token,
                         userDetails.getAuthorities()
                 );
                 authToken.setDetails(
@@ -63,4 +64,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private AccessToken parse(String jwt) {
+        try {
+            return jwtService.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
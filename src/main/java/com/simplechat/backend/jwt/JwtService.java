@@ -1,6 +1,7 @@
 package com.simplechat.backend.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -9,90 +10,65 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    private final String secretKey;
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String SESSION_ID_CLAIM = "sid";
+
+    private final Key signingKey;
     private final long jwtExpiration;
 
     public JwtService(
             @Value("${application.security.jwt.secret-key}") String secretKey,
             @Value("${application.security.jwt.expiration}") long jwtExpiration
     ) {
-        this.secretKey = secretKey;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
         this.jwtExpiration = jwtExpiration;
     }
 
     /**
-     * Generates a new JWT for a given username.
+     * Generates a short-lived access token for one login session.
+     * The user id and session id travel in the token, so requests are authenticated without a user lookup.
      */
-    public String generateToken(String username) {
+    public String generateToken(Long userId, String username, String sessionId) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .setClaims(new HashMap<>())
                 .setSubject(username)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(SESSION_ID_CLAIM, sessionId)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + jwtExpiration))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     /**
-     * Checks if a token is valid for a given username.
-     */
-    public boolean isTokenValid(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username)) && !isTokenExpired(token);
-    }
-
-    /**
-    * Extracts the username (the "subject") from the token.
-    */
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    /**
-     * Checks if a token is expired.
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Extracts the expiration date from the token.
+     * Validates the signature and expiry and returns the token's claims.
+     *
+     * @throws JwtException if the token is malformed, forged, expired or predates session ids
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    /**
-     * A generic method to extract any piece of data (a "claim") from the token.
-     */
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    /**
-     * The core parser that validates the token's signature and extracts all data.
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
+    public AccessToken parseToken(String token) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
                 .build()
                 .parseClaimsJws(token)
                 .getBody();
+
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        String sessionId = claims.get(SESSION_ID_CLAIM, String.class);
+        if (userId == null || sessionId == null || claims.getSubject() == null) {
+            throw new JwtException("Token is missing session claims");
+        }
+
+        return new AccessToken(userId.longValue(), claims.getSubject(), sessionId,
+                claims.getIssuedAt().toInstant(), claims.getExpiration().toInstant());
     }
 
-    /**
-     * Decodes our Base64 secret key into a proper Key object for signing.
-     */
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public Duration getExpiration() {
+        return Duration.ofMillis(jwtExpiration);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.simplechat.backend.jwt;
+
+import io.jsonwebtoken.JwtException;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Lets a connected client swap in a fresh access token when challenged, instead of reconnecting.
+ */
+@Controller
+public class SessionTokenSocketController {
+
+    private final JwtService jwtService;
+    private final StompSessionRegistry sessionRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public SessionTokenSocketController(
+            JwtService jwtService,
+            StompSessionRegistry sessionRegistry,
+            SimpMessagingTemplate messagingTemplate
+    ) {
+        this.jwtService = jwtService;
+        this.sessionRegistry = sessionRegistry;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @MessageMapping("/session.refresh")
+    public void refresh(
+            @Header(name = "Authorization", required = false) String authHeader,
+            SimpMessageHeaderAccessor headerAccessor,
+            Principal principal
+    ) {
+        try {
+            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                throw new IllegalArgumentException("Missing access token");
+            }
+            sessionRegistry.renew(headerAccessor.getSessionId(), jwtService.parseToken(authHeader.substring(7)));
+        } catch (JwtException | IllegalArgumentException e) {
+            // The session is closed at expiry anyway; tell the client so it can log in again.
+            if (principal == null) {
+                return;
+            }
+            messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/errors",
+                    Map.of("error", "Session token could not be renewed"));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.simplechat.backend.jwt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the access token behind every authenticated STOMP session, so a session cannot outlive its token.
+ * Shortly before the token expires the client is challenged on {@code /user/queue/session} to send a fresh one
+ * to {@code /app/session.refresh}; a session that has not renewed by the expiry is closed. Revoked sessions are
+ * closed right away. Deadlines sit in an {@link ExpiryWheel}, so a tick never scans the open sessions.
+ */
+@Component
+public class StompSessionRegistry implements WebSocketHandlerDecoratorFactory {
+
+    public static final CloseStatus TOKEN_EXPIRED = new CloseStatus(4001, "Token expired");
+    public static final CloseStatus TOKEN_REVOKED = new CloseStatus(4003, "Token revoked");
+
+    private static final Logger log = LoggerFactory.getLogger(StompSessionRegistry.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TaskScheduler taskScheduler;
+    private final TokenRevocationList revocationList;
+    private final long challengeLeadMillis;
+    private final ExpiryWheel wheel;
+
+    private final Map<String, WebSocketSession> openSessions = new ConcurrentHashMap<>();
+    private final Map<String, TrackedSession> trackedSessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> sessionIdsByUser = new ConcurrentHashMap<>();
+
+    private final Counter expiredCloses;
+    private final Counter revokedCloses;
+
+    public StompSessionRegistry(
+            // Lazy because both are built by the WebSocket configuration, which depends on this registry.
+            @Lazy SimpMessagingTemplate messagingTemplate,
+            @Lazy @Qualifier("realtimeTaskScheduler") TaskScheduler taskScheduler,
+            TokenRevocationList revocationList,
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.token-challenge-lead-ms:60000}") long challengeLeadMillis,
+            @Value("${app.websocket.expiry-tick-ms:1000}") long tickMillis
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.taskScheduler = taskScheduler;
+        this.revocationList = revocationList;
+        this.challengeLeadMillis = challengeLeadMillis;
+        // 1024 one-second slots cover a 15 minute token in a single turn
+        this.wheel = new ExpiryWheel(tickMillis, 1024, System.currentTimeMillis());
+
+        Gauge.builder("websocket.sessions.authenticated", trackedSessions, Map::size)
+                .description("STOMP sessions with a tracked access token")
+                .register(meterRegistry);
+        this.expiredCloses = closeCounter(meterRegistry, "expired");
+        this.revokedCloses = closeCounter(meterRegistry, "revoked");
+    }
+
+    /**
+     * Starts tracking a session that has just authenticated with {@code token}.
+     */
+    public void register(String sessionId, AccessToken token) {
+        trackedSessions.put(sessionId, new TrackedSession(token));
+        sessionIdsByUser.computeIfAbsent(token.userId(), id -> ConcurrentHashMap.newKeySet()).add(sessionId);
+        scheduleChallenge(sessionId, token);
+    }
+
+    /**
+     * Replaces the token of a session before it expires.
+     *
+     * @throws IllegalArgumentException if the session is unknown or the token belongs to another user or is revoked
+     */
+    public void renew(String sessionId, AccessToken token) {
+        TrackedSession tracked = trackedSessions.get(sessionId);
+        if (tracked == null || !tracked.token.userId().equals(token.userId()) || revocationList.isRevoked(token)) {
+            throw new IllegalArgumentException("Token cannot renew this session");
+        }
+        tracked.token = token;
+        tracked.challenged = false;
+        scheduleChallenge(sessionId, token);
+    }
+
+    @Scheduled(fixedRateString = "${app.websocket.expiry-tick-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+
+        for (String sessionId : wheel.advance(now)) {
+            TrackedSession tracked = trackedSessions.get(sessionId);
+            if (tracked == null) {
+                continue;
+            }
+            long expiresAt = tracked.token.expiresAt().toEpochMilli();
+
+            if (!tracked.challenged && now < expiresAt) {
+                tracked.challenged = true;
+                challenge(sessionId, tracked.token);
+                wheel.schedule(sessionId, expiresAt);
+            } else {
+                expiredCloses.increment();
+                close(sessionId, TOKEN_EXPIRED);
+            }
+        }
+    }
+
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        Set<String> sessionIds = sessionIdsByUser.get(event.userId());
+        if (sessionIds == null) {
+            return;
+        }
+        for (String sessionId : sessionIds) {
+            TrackedSession tracked = trackedSessions.get(sessionId);
+            if (tracked != null && event.covers(tracked.token)) {
+                revokedCloses.increment();
+                close(sessionId, TOKEN_REVOKED);
+            }
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                openSessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                openSessions.remove(session.getId());
+                untrack(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private void scheduleChallenge(String sessionId, AccessToken token) {
+        wheel.schedule(sessionId, token.expiresAt().toEpochMilli() - challengeLeadMillis);
+    }
+
+    private void challenge(String sessionId, AccessToken token) {
+        // Addressed to this session only; the user's other sessions hold other tokens
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        MessageHeaders headers = accessor.getMessageHeaders();
+
+        messagingTemplate.convertAndSendToUser(token.username(), "/queue/session",
+                Map.of("type", "TOKEN_EXPIRING", "expiresAt", token.expiresAt().toEpochMilli()), headers);
+    }
+
+    private void untrack(String sessionId) {
+        wheel.cancel(sessionId);
+        TrackedSession tracked = trackedSessions.remove(sessionId);
+        if (tracked != null) {
+            sessionIdsByUser.computeIfPresent(tracked.token.userId(), (id, sessionIds) -> {
+                sessionIds.remove(sessionId);
+                return sessionIds.isEmpty() ? null : sessionIds;
+            });
+        }
+    }
+
+    private void close(String sessionId, CloseStatus status) {
+        untrack(sessionId);
+        WebSocketSession session = openSessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+
+        // Closing can block behind a stalled write, so it must not hold up the tick or the revocation poll.
+        taskScheduler.schedule(() -> {
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                log.debug("Failed to close WebSocket session {}", sessionId, e);
+            }
+        }, Instant.now());
+    }
+
+    private static Counter closeCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("websocket.sessions.closed.token")
+                .description("Sessions closed because their access token expired or was revoked")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class TrackedSession {
+
+        private volatile AccessToken token;
+        private volatile boolean challenged;
+
+        private TrackedSession(AccessToken token) {
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.simplechat.backend.jwt;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A revocation published to every node: either one login session or, with no session id,
+ * every token the user was issued before {@code revokedAt}.
+ * Rows are only needed until the access tokens they cover have expired.
+ */
+@Entity
+@Table(name = "token_revocations")
+public class TokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "session_id", length = 36)
+    private String sessionId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    protected TokenRevocation() {
+    }
+
+    public TokenRevocation(Long userId, String sessionId, Instant revokedAt) {
+        this.userId = userId;
+        this.sessionId = sessionId;
+        this.revokedAt = revokedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+}
@@ -0,0 +1,124 @@
+package com.simplechat.backend.jwt;
+
+import com.simplechat.backend.config.ReplicaRoutingDataSource;
+import com.simplechat.backend.config.SchedulingConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked sessions and users, checked in memory on every authenticated request.
+ * An entry is only kept while a token it covers could still be unexpired, so the sets stay as small
+ * as the number of logouts and password resets within one access token lifetime.
+ * Revocations are written to {@code token_revocations} and every node polls that table,
+ * so a logout on one node reaches the others within the poll interval.
+ */
+@Component
+public class TokenRevocationList {
+
+    // Polls re-read this far back, covering clock skew between nodes and transactions that commit late.
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(10);
+
+    private final TokenRevocationRepository revocationRepository;
+    private final Duration tokenLifetime;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, Instant> revokedSessions = new ConcurrentHashMap<>();
+    private final Map<Long, Instant> notBeforeByUser = new ConcurrentHashMap<>();
+    private volatile Instant lastPolledAt;
+
+    public TokenRevocationList(
+            TokenRevocationRepository revocationRepository,
+            JwtService jwtService,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry
+    ) {
+        this.revocationRepository = revocationRepository;
+        this.tokenLifetime = jwtService.getExpiration();
+        this.eventPublisher = eventPublisher;
+        Gauge.builder("auth.revocations", this, list -> list.revokedSessions.size() + list.notBeforeByUser.size())
+                .description("Session and user revocations held in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(AccessToken token) {
+        if (revokedSessions.containsKey(token.sessionId())) {
+            return true;
+        }
+        Instant notBefore = notBeforeByUser.get(token.userId());
+        return notBefore != null && !token.issuedAt().isAfter(notBefore);
+    }
+
+    /**
+     * Revokes the access tokens of one login session.
+     */
+    public void revokeSession(Long userId, String sessionId) {
+        publish(new TokenRevocation(userId, sessionId, Instant.now()));
+    }
+
+    /**
+     * Revokes every access token issued to the user up to now.
+     */
+    public void revokeUser(Long userId) {
+        publish(new TokenRevocation(userId, null, Instant.now()));
+    }
+
+    private void publish(TokenRevocation revocation) {
+        revocationRepository.save(revocation);
+        apply(revocation);
+    }
+
+    private void apply(TokenRevocation revocation) {
+        // Token issue times have second precision
+        Instant notBefore = revocation.getRevokedAt().truncatedTo(ChronoUnit.SECONDS);
+        boolean isNew;
+
+        if (revocation.getSessionId() != null) {
+            isNew = revokedSessions.putIfAbsent(revocation.getSessionId(), revocation.getRevokedAt()) == null;
+        } else {
+            Instant previous = notBeforeByUser.get(revocation.getUserId());
+            notBeforeByUser.merge(revocation.getUserId(), notBefore, (a, b) -> a.isAfter(b) ? a : b);
+            isNew = previous == null || previous.isBefore(notBefore);
+        }
+
+        // Polls re-read recent rows, so only revocations this node has not seen yet are announced
+        if (isNew) {
+            eventPublisher.publishEvent(new TokenRevokedEvent(revocation.getUserId(), revocation.getSessionId(), notBefore));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lastPolledAt = Instant.now().minus(tokenLifetime);
+        poll();
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.poll-ms:1000}", initialDelayString = "${app.security.revocation.poll-ms:1000}")
+    public void poll() {
+        if (lastPolledAt == null) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        ReplicaRoutingDataSource.onPrimary(() -> revocationRepository.findByRevokedAtGreaterThanEqual(lastPolledAt.minus(POLL_OVERLAP)))
+                .forEach(this::apply);
+        lastPolledAt = startedAt;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-ms:60000}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(tokenLifetime);
+        revokedSessions.values().removeIf(revokedAt -> revokedAt.isBefore(cutoff));
+        notBeforeByUser.values().removeIf(notBefore -> notBefore.isBefore(cutoff));
+        revocationRepository.deleteRevokedBefore(cutoff.minus(POLL_OVERLAP));
+    }
+}
@@ -0,0 +1,21 @@
+package com.simplechat.backend.jwt;
+
+import java.time.Instant;
+
+/**
+ * Published when this node learns of a revocation, whether made locally or polled from another node.
+ * {@code sessionId} is null when every token of the user issued up to {@code notBefore} is revoked.
+ */
+public record TokenRevokedEvent(
+        Long userId,
+        String sessionId,
+        Instant notBefore
+) {
+
+    public boolean covers(AccessToken token) {
+        if (!userId.equals(token.userId())) {
+            return false;
+        }
+        return sessionId != null ? sessionId.equals(token.sessionId()) : !token.issuedAt().isAfter(notBefore);
+    }
+}
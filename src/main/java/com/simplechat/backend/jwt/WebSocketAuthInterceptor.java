@@ -1,9 +1,12 @@
 package com.simplechat.backend.jwt;
 
-import com.simplechat.backend.user.AppUserDetailsService;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
@@ -11,50 +14,55 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+/**
+ * Authenticates STOMP sessions from the access token on the CONNECT frame and hands the token
+ * to the {@link StompSessionRegistry}, which ends the session when the token expires.
+ */
 @Component
 public class WebSocketAuthInterceptor implements ChannelInterceptor {
 
+    private static final Logger log = LoggerFactory.getLogger(WebSocketAuthInterceptor.class);
+
     private final JwtService jwtService;
-    private final AppUserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
+    private final StompSessionRegistry sessionRegistry;
 
-    public WebSocketAuthInterceptor(JwtService jwtService, AppUserDetailsService userDetailsService) {
+    public WebSocketAuthInterceptor(JwtService jwtService, TokenRevocationList revocationList, StompSessionRegistry sessionRegistry) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
+        this.sessionRegistry = sessionRegistry;
     }
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        // Every inbound frame passes through here; all but CONNECT leave after one header lookup.
+        if (message.getHeaders().get(SimpMessageHeaderAccessor.MESSAGE_TYPE_HEADER) != SimpMessageType.CONNECT) {
+            return message;
+        }
+
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                AccessToken token = jwtService.parseToken(authHeader.substring(7));
+
+                if (!revocationList.isRevoked(token)) {
+                    UserDetails userDetails = token.toUser();
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            token,
+                            userDetails.getAuthorities()
+                    );
 
-        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
-            String authHeader = accessor.getFirstNativeHeader("Authorization");
-
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                String jwt = authHeader.substring(7);
-                
-                try {
-                    String username = jwtService.extractUsername(jwt);
-
-                    if (username != null) {
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                        if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
-                            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-
-                            accessor.setUser(authToken); 
-                            System.out.println("WebSocket: User authenticated - " + authToken.getName());
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("WebSocket: Authentication failed: " + e.getMessage());
+                    accessor.setUser(authToken);
+                    sessionRegistry.register(accessor.getSessionId(), token);
                 }
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("WebSocket authentication failed: {}", e.getMessage());
             }
         }
 
         return message;
     }
-}
\ No newline at end of file
+}
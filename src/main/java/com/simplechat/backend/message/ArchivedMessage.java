@@ -0,0 +1,16 @@
+package com.simplechat.backend.message;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message row as stored in a cold archive file. The content is still encrypted.
+ * The attachment itself stays in the database; {@code attachmentId} is null for messages without one.
+ */
+public record ArchivedMessage(
+    Long id,
+    Long senderId,
+    Long recipientId,
+    LocalDateTime timestamp,
+    String encryptedContent,
+    Long attachmentId
+) {}
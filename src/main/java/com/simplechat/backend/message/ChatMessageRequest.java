@@ -8,5 +8,12 @@ public record ChatMessageRequest(
 
     @NotBlank(message = "Message content cannot be empty")
     @Size(max = 1000, message = "Message is too long (max 1000 characters)")
-    String content
+    String content,
+
+    // An uploaded attachment to send with the message; the content is its caption
+    Long attachmentId,
+
+    // Chosen by the client and reused when it resends after a reconnect, so the message is stored and delivered once
+    @Size(max = 64, message = "Client message id is too long (max 64 characters)")
+    String clientMessageId
 ) {}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.simplechat.backend.message;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.simplechat.backend.attachment.AttachmentDto;
+import java.time.ZoneId;
+
+/**
+ * Compact wire form of {@link MessageDto}: user ids instead of user objects, epoch millis instead of an ISO string,
+ * and serialized as a positional array in the order of the components.
+ */
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+public record CompactMessageDto(
+    long id,
+    long senderId,
+    long recipientId,
+    String content,
+    long sentAt,
+    AttachmentDto attachment
+) {
+
+    public static CompactMessageDto fromMessage(Message message) {
+        return new CompactMessageDto(
+            message.getId(),
+            message.getSender().getId(),
+            message.getRecipient().getId(),
+            message.getContent(),
+            message.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+            message.getAttachment() != null ? AttachmentDto.fromAttachment(message.getAttachment()) : null
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package com.simplechat.backend.message;
 
+import com.simplechat.backend.attachment.Attachment;
 import com.simplechat.backend.user.User;
 import com.simplechat.backend.util.AttributeEncryptor;
 import jakarta.persistence.*;
@@ -13,21 +14,25 @@ public class Message {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "TEXT")
     @Convert(converter = AttributeEncryptor.class)
     private String content;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "recipient_id", nullable = false)
     private User recipient;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "attachment_id")
+    private Attachment attachment;
+
     public Long getId() {
         return id;
     }
@@ -67,4 +72,12 @@ public class Message {
     public void setRecipient(User recipient) {
         this.recipient = recipient;
     }
+
+    public Attachment getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Attachment attachment) {
+        this.attachment = attachment;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.simplechat.backend.message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One month of archived messages in a single file.
+ *
+ * <p>Layout: a magic header, then one gzip block per conversation holding its messages newest first,
+ * then an index of (user pair, offset, length, count) and finally the offset of that index.
+ * A history lookup reads the index once and decompresses only the block of one conversation.
+ *
+ * <p>Version 2 adds the attachment id to each record. Files of version 1 are still read, as messages without one.
+ */
+public final class MessageArchiveFile {
+
+    private static final byte[] MAGIC_V1 = "SCARCH1\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MAGIC = "SCARCH2\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final boolean hasAttachments;
+    private final Map<ConversationKey, Block> blocks;
+
+    private MessageArchiveFile(Path path, boolean hasAttachments, Map<ConversationKey, Block> blocks) {
+        this.path = path;
+        this.hasAttachments = hasAttachments;
+        this.blocks = blocks;
+    }
+
+    public static MessageArchiveFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+            channel.read(header, 0);
+            header.flip();
+            boolean hasAttachments = ByteBuffer.wrap(MAGIC).equals(header);
+            if (!hasAttachments && !ByteBuffer.wrap(MAGIC_V1).equals(header)) {
+                throw new IOException("Not a message archive: " + path);
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(Long.BYTES);
+            channel.read(footer, channel.size() - Long.BYTES);
+            long indexOffset = footer.flip().getLong();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(indexOffset))));
+            int entries = in.readInt();
+            Map<ConversationKey, Block> blocks = new HashMap<>(entries * 2);
+            for (int i = 0; i < entries; i++) {
+                ConversationKey key = new ConversationKey(in.readLong(), in.readLong());
+                blocks.put(key, new Block(in.readLong(), in.readInt()));
+            }
+            return new MessageArchiveFile(path, hasAttachments, blocks);
+        }
+    }
+
+    /**
+     * Number of archived messages between the two users in this month.
+     */
+    public int count(Long userId, Long otherUserId) {
+        Block block = blocks.get(ConversationKey.of(userId, otherUserId));
+        return block == null ? 0 : block.count();
+    }
+
+    /**
+     * Reads messages between the two users, newest first, skipping {@code skip} and returning at most {@code limit}.
+     */
+    public List<ArchivedMessage> read(Long userId, Long otherUserId, int skip, int limit) throws IOException {
+        Block block = blocks.get(ConversationKey.of(userId, otherUserId));
+        List<ArchivedMessage> messages = new ArrayList<>();
+
+        if (block == null || skip >= block.count() || limit <= 0) {
+            return messages;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     new GZIPInputStream(Channels.newInputStream(channel.position(block.offset())))))) {
+
+            int end = Math.min(block.count(), skip + limit);
+            for (int i = 0; i < end; i++) {
+                ArchivedMessage message = readRecord(in, hasAttachments);
+                if (i >= skip) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    private static ArchivedMessage readRecord(DataInputStream in, boolean hasAttachments) throws IOException {
+        long id = in.readLong();
+        long senderId = in.readLong();
+        long recipientId = in.readLong();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        byte[] content = new byte[in.readInt()];
+        in.readFully(content);
+        Long attachmentId = hasAttachments && in.readBoolean() ? in.readLong() : null;
+        return new ArchivedMessage(id, senderId, recipientId, timestamp, new String(content, StandardCharsets.UTF_8), attachmentId);
+    }
+
+    /**
+     * Streams messages into a new archive file. Messages must arrive grouped by conversation, newest first.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final CountingOutputStream file;
+        private final List<Map.Entry<ConversationKey, Block>> index = new ArrayList<>();
+
+        private ConversationKey currentKey;
+        private long currentOffset;
+        private int currentCount;
+        private GZIPOutputStream currentGzip;
+        private DataOutputStream currentOut;
+
+        public Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.file = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            file.write(MAGIC);
+        }
+
+        public void write(ArchivedMessage message) throws IOException {
+            ConversationKey key = ConversationKey.of(message.senderId(), message.recipientId());
+            if (!key.equals(currentKey)) {
+                finishBlock();
+                currentKey = key;
+                currentOffset = file.count;
+                currentCount = 0;
+                currentGzip = new GZIPOutputStream(new SharedOutputStream(file), 64 * 1024);
+                currentOut = new DataOutputStream(currentGzip);
+            }
+
+            byte[] content = message.encryptedContent().getBytes(StandardCharsets.UTF_8);
+            currentOut.writeLong(message.id());
+            currentOut.writeLong(message.senderId());
+            currentOut.writeLong(message.recipientId());
+            currentOut.writeLong(message.timestamp().toEpochSecond(ZoneOffset.UTC));
+            currentOut.writeInt(message.timestamp().getNano());
+            currentOut.writeInt(content.length);
+            currentOut.write(content);
+            currentOut.writeBoolean(message.attachmentId() != null);
+            if (message.attachmentId() != null) {
+                currentOut.writeLong(message.attachmentId());
+            }
+            currentCount++;
+        }
+
+        private void finishBlock() throws IOException {
+            if (currentKey == null) {
+                return;
+            }
+            currentOut.flush();
+            currentGzip.finish();
+            index.add(Map.entry(currentKey, new Block(currentOffset, currentCount)));
+            currentKey = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finishBlock();
+
+            long indexOffset = file.count;
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeInt(index.size());
+            for (Map.Entry<ConversationKey, Block> entry : index) {
+                out.writeLong(entry.getKey().lowUserId());
+                out.writeLong(entry.getKey().highUserId());
+                out.writeLong(entry.getValue().offset());
+                out.writeInt(entry.getValue().count());
+            }
+            out.writeLong(indexOffset);
+            out.flush();
+            channel.force(true);
+            out.close();
+        }
+    }
+
+    private record ConversationKey(long lowUserId, long highUserId) {
+
+        static ConversationKey of(long userId, long otherUserId) {
+            return new ConversationKey(Math.min(userId, otherUserId), Math.max(userId, otherUserId));
+        }
+    }
+
+    private record Block(long offset, int count) {}
+
+    /**
+     * Lets each conversation's gzip stream write to the shared file without closing it.
+     */
+    private static final class SharedOutputStream extends FilterOutputStream {
+
+        private SharedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
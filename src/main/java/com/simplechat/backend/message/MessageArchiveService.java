@@ -0,0 +1,202 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.config.SchedulingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Moves message partitions past the retention period into compressed archive files on local disk,
+ * and reads them back for chat history once a conversation runs out of rows in the database.
+ * The partition is dropped once its file is written, so the archive directory must be on persistent storage.
+ */
+@Service
+public class MessageArchiveService {
+
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("'messages-'uuuu-MM'.archive'");
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessagePartitionManager partitionManager;
+    private final MessageSearchIndex messageSearchIndex;
+    private final boolean enabled;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    private final NavigableSet<YearMonth> archivedMonths = new ConcurrentSkipListSet<>();
+    private final Map<YearMonth, MessageArchiveFile> openArchives = new ConcurrentHashMap<>();
+
+    public MessageArchiveService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MessagePartitionManager partitionManager,
+            MessageSearchIndex messageSearchIndex,
+            @Value("${app.messages.archive.enabled:false}") boolean enabled,
+            @Value("${app.messages.archive.retention-months:12}") int retentionMonths,
+            @Value("${app.messages.archive.dir:archive}") Path archiveDir
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.partitionManager = partitionManager;
+        this.messageSearchIndex = messageSearchIndex;
+        this.enabled = enabled;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = archiveDir;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadArchivedMonths() throws IOException {
+        if (!Files.isDirectory(archiveDir)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("messages-\\d{4}-\\d{2}\\.archive"))
+                    .map(name -> YearMonth.parse(name, FILE_NAME))
+                    .forEach(archivedMonths::add);
+        }
+    }
+
+    public boolean hasArchives() {
+        return !archivedMonths.isEmpty();
+    }
+
+    /**
+     * Archives every partition older than the retention period: detach it, write its rows to a file, drop it.
+     * Each step can be repeated, so a run interrupted half way is finished by the next one.
+     */
+    @Scheduled(cron = "${app.messages.archive.cron:0 30 3 * * *}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void archiveExpiredPartitions() {
+        if (!enabled || !partitionManager.isEnabled()) {
+            return;
+        }
+
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (YearMonth month : partitionManager.monthsBefore(cutoff)) {
+            try {
+                archive(month);
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Archiving messages of {} failed, partition kept", month, e);
+                return;
+            }
+        }
+    }
+
+    private void archive(YearMonth month) throws IOException {
+        partitionManager.detach(month);
+
+        Files.createDirectories(archiveDir);
+        Path target = archivePath(month);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        String partition = MessagePartitionManager.partitionName(month);
+        String sql = "SELECT id, sender_id, recipient_id, timestamp, content, attachment_id FROM " + partition +
+                " ORDER BY LEAST(sender_id, recipient_id), GREATEST(sender_id, recipient_id), timestamp DESC, id DESC";
+
+        AtomicLong maxArchivedId = new AtomicLong();
+
+        try (MessageArchiveFile.Writer writer = new MessageArchiveFile.Writer(temp)) {
+            // The cursor only streams with a fetch size inside a transaction.
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement statement = connection.prepareStatement(sql);
+                        statement.setFetchSize(1000);
+                        return statement;
+                    },
+                    row -> {
+                        maxArchivedId.accumulateAndGet(row.getLong("id"), Math::max);
+                        try {
+                            writer.write(new ArchivedMessage(
+                                    row.getLong("id"),
+                                    row.getLong("sender_id"),
+                                    row.getLong("recipient_id"),
+                                    row.getTimestamp("timestamp").toLocalDateTime(),
+                                    row.getString("content"),
+                                    row.getObject("attachment_id", Long.class)
+                            ));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+            ));
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        openArchives.remove(month);
+        archivedMonths.add(month);
+
+        partitionManager.drop(month);
+        // Message ids grow with time, so every message of older months has a smaller id.
+        messageSearchIndex.removeUpTo(maxArchivedId.get());
+        log.info("Archived messages of {} to {}", month, target);
+    }
+
+    /**
+     * Archived messages between two users, newest first, continuing {@code skip} messages into the archive.
+     * Files are opened on first use and only the blocks of this conversation are decompressed.
+     */
+    public List<ArchivedMessage> findConversation(Long userId, Long otherUserId, int skip, int limit) {
+        List<ArchivedMessage> result = new ArrayList<>();
+
+        for (YearMonth month : archivedMonths.descendingSet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+
+            try {
+                MessageArchiveFile archive = openArchive(month);
+                int count = archive.count(userId, otherUserId);
+
+                if (skip >= count) {
+                    skip -= count;
+                    continue;
+                }
+
+                result.addAll(archive.read(userId, otherUserId, skip, limit - result.size()));
+                skip = 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read message archive of " + month, e);
+            }
+        }
+        return result;
+    }
+
+    private MessageArchiveFile openArchive(YearMonth month) throws IOException {
+        MessageArchiveFile archive = openArchives.get(month);
+        if (archive == null) {
+            archive = MessageArchiveFile.open(archivePath(month));
+            openArchives.put(month, archive);
+        }
+        return archive;
+    }
+
+    private Path archivePath(YearMonth month) {
+        return archiveDir.resolve(month.format(FILE_NAME));
+    }
+}
@@ -0,0 +1,75 @@
+package com.simplechat.backend.message;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * The id a client gave a message it sent. The primary key makes a second send with the same id fail,
+ * and {@link MessageDeduplicator} answers it with the stored message instead.
+ */
+@Entity
+@Table(name = "message_client_ids")
+@IdClass(MessageClientId.Key.class)
+public class MessageClientId {
+
+    @Id
+    @Column(name = "sender_id")
+    private Long senderId;
+
+    @Id
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    protected MessageClientId() {
+    }
+
+    public Long getSenderId() {
+        return senderId;
+    }
+
+    public String getClientMessageId() {
+        return clientMessageId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long senderId;
+        private String clientMessageId;
+
+        public Key() {
+        }
+
+        public Key(Long senderId, String clientMessageId) {
+            this.senderId = senderId;
+            this.clientMessageId = clientMessageId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key
+                    && Objects.equals(senderId, key.senderId) && Objects.equals(clientMessageId, key.clientMessageId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(senderId, clientMessageId);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.simplechat.backend.message;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface MessageClientIdRepository extends JpaRepository<MessageClientId, MessageClientId.Key> {
+
+    /**
+     * The message stored under a client message id, unless it has since been archived.
+     */
+    @Query("""
+            SELECT new com.simplechat.backend.message.MessageRow(
+                m.id, m.content, m.timestamp, s.id, s.username, r.id, r.username,
+                a.id, a.fileName, a.contentType, a.sizeBytes)
+            FROM MessageClientId c JOIN Message m ON m.id = c.messageId JOIN m.sender s JOIN m.recipient r LEFT JOIN m.attachment a
+            WHERE c.senderId = :senderId AND c.clientMessageId = :clientMessageId
+            """)
+    Optional<MessageRow> findRow(@Param("senderId") Long senderId, @Param("clientMessageId") String clientMessageId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM MessageClientId c WHERE c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -20,6 +20,12 @@ public class MessageController {
         this.messageService = messageService;
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<MessageDto>> search(@RequestParam String q, @RequestParam(required = false) Long before, Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(messageService.search(currentUser, q, before));
+    }
+
     @GetMapping("/{friendId}")
     public ResponseEntity<List<MessageDto>> getChatHistory(@PathVariable Long friendId, Authentication authentication, @RequestParam(defaultValue = "0") int page) {
         User currentUser = (User) authentication.getPrincipal();
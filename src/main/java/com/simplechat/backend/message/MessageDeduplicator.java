@@ -0,0 +1,104 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.config.ReplicaRoutingDataSource;
+import com.simplechat.backend.config.SchedulingConfig;
+import com.simplechat.backend.wire.NegotiatedPayload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recognises a message sent again under the same client message id, as clients do when they reconnect before the
+ * first send was confirmed. The id is claimed in {@code message_client_ids} before the message is inserted, so a resend
+ * fails on the primary key without inserting anything. Recently sent messages are also kept in memory for a short
+ * time, so the common case, a resend to the same node within seconds, is answered without touching the database.
+ */
+@Component
+public class MessageDeduplicator {
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO message_client_ids (sender_id, client_message_id, created_at) VALUES (?, ?, ?)";
+    private static final String BIND_SQL =
+            "UPDATE message_client_ids SET message_id = ? WHERE sender_id = ? AND client_message_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageClientIdRepository clientIdRepository;
+    private final long cacheTtlMillis;
+    private final Duration retention;
+    private final Map<MessageClientId.Key, RecentMessage> recentMessages = new ConcurrentHashMap<>();
+
+    public MessageDeduplicator(
+            JdbcTemplate jdbcTemplate,
+            MessageClientIdRepository clientIdRepository,
+            @Value("${app.messages.dedup.cache-ttl-ms:120000}") long cacheTtlMillis,
+            @Value("${app.messages.dedup.retention-hours:24}") int retentionHours
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clientIdRepository = clientIdRepository;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * The message recently sent under this id on this node, if any.
+     */
+    public Optional<NegotiatedPayload> findRecent(Long senderId, String clientMessageId) {
+        RecentMessage recent = recentMessages.get(new MessageClientId.Key(senderId, clientMessageId));
+        if (recent == null || recent.sentAt() + cacheTtlMillis < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(recent.payload());
+    }
+
+    /**
+     * The message stored under this id, after a claim found it taken.
+     */
+    public Optional<NegotiatedPayload> findStored(Long senderId, String clientMessageId) {
+        // The winning send has just committed, so the replica may not have it yet.
+        return ReplicaRoutingDataSource.onPrimary(() -> clientIdRepository.findRow(senderId, clientMessageId))
+                .map(row -> new NegotiatedPayload(row.toDto(), row.toCompactDto()));
+    }
+
+    /**
+     * Claims the id for a message about to be saved, in the transaction that saves it.
+     * A concurrent claim of the same id waits for this transaction and fails if it commits.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if the id was already claimed
+     */
+    public void claim(Long senderId, String clientMessageId) {
+        jdbcTemplate.update(CLAIM_SQL, senderId, clientMessageId, Timestamp.from(Instant.now()));
+    }
+
+    public void bind(Long senderId, String clientMessageId, Long messageId) {
+        jdbcTemplate.update(BIND_SQL, messageId, senderId, clientMessageId);
+    }
+
+    /**
+     * Keeps a committed message in memory for resends of it.
+     */
+    public void remember(Long senderId, String clientMessageId, NegotiatedPayload payload) {
+        recentMessages.put(new MessageClientId.Key(senderId, clientMessageId),
+                new RecentMessage(payload, System.currentTimeMillis()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.messages.dedup.cache-ttl-ms:120000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - cacheTtlMillis;
+        recentMessages.values().removeIf(recent -> recent.sentAt() < cutoff);
+    }
+
+    @Scheduled(fixedDelayString = "${app.messages.dedup.purge-interval-ms:3600000}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void purgeExpiredIds() {
+        clientIdRepository.deleteCreatedBefore(Instant.now().minus(retention));
+    }
+
+    private record RecentMessage(NegotiatedPayload payload, long sentAt) {}
+}
@@ -1,5 +1,7 @@
 package com.simplechat.backend.message;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.simplechat.backend.attachment.AttachmentDto;
 import com.simplechat.backend.user.UserDto;
 import java.time.LocalDateTime;
 
@@ -10,6 +12,9 @@ public class MessageDto {
     private LocalDateTime timestamp;
     private UserDto sender;
     private UserDto recipient;
+    // Left out of the JSON for the usual message without one
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private AttachmentDto attachment;
 
     public static MessageDto fromMessage(Message message) {
         return new MessageDto(
@@ -17,7 +22,8 @@ public class MessageDto {
             message.getContent(),
             message.getTimestamp(),
             UserDto.fromUser(message.getSender()),
-            UserDto.fromUser(message.getRecipient())
+            UserDto.fromUser(message.getRecipient()),
+            message.getAttachment() != null ? AttachmentDto.fromAttachment(message.getAttachment()) : null
         );
     }
 
@@ -29,14 +35,20 @@ public class MessageDto {
         this.sender = sender;
         this.recipient = recipient;
     }
+    public MessageDto(Long id, String content, LocalDateTime timestamp, UserDto sender, UserDto recipient, AttachmentDto attachment) {
+        this(id, content, timestamp, sender, recipient);
+        this.attachment = attachment;
+    }
     public Long getId() { return id; }
     public String getContent() { return content; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public UserDto getSender() { return sender; }
     public UserDto getRecipient() { return recipient; }
+    public AttachmentDto getAttachment() { return attachment; }
     public void setId(Long id) { this.id = id; }
     public void setContent(String content) { this.content = content; }
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     public void setSender(UserDto sender) { this.sender = sender; }
     public void setRecipient(UserDto recipient) { this.recipient = recipient; }
+    public void setAttachment(AttachmentDto attachment) { this.attachment = attachment; }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.config.SchedulingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Creates the monthly partitions of the messages table ahead of time and detaches old ones.
+ * Partitions are named messages_yYYYYmMM and cover one calendar month of timestamps. Rows that found no partition
+ * wait in messages_default until their month gets one. Every node runs this on startup and on a schedule; an
+ * advisory lock lets one of them do the work while the others skip.
+ */
+@Component
+public class MessagePartitionManager {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'messages_y'uuuu'm'MM");
+    private static final String DEFAULT_PARTITION = "messages_default";
+    private static final String LOCK = "message-partitions";
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int partitionsAhead;
+
+    public MessagePartitionManager(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.messages.partitioning.enabled:false}") boolean enabled,
+            @Value("${app.messages.partitions-ahead:3}") int partitionsAhead
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs {@link #createUpcomingPartitions()} once the application is up. A failure is logged rather than thrown,
+     * so it cannot stop the node from starting; the scheduled run tries again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPartitionsOnStartup() {
+        try {
+            createUpcomingPartitions();
+        } catch (RuntimeException e) {
+            log.error("Creating message partitions on startup failed", e);
+        }
+    }
+
+    /**
+     * Makes sure partitions exist for the current month, the configured number of months ahead
+     * and every month that has rows in the default partition. Skipped if another node is already doing it.
+     */
+    @Scheduled(cron = "${app.messages.partition-cron:0 0 3 * * *}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void createUpcomingPartitions() {
+        if (!enabled) {
+            return;
+        }
+
+        // One transaction, so the lock is held until every partition is attached and the state is read under it.
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, LOCK);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.debug("Message partitions are being created by another node");
+                return;
+            }
+
+            Set<YearMonth> months = new TreeSet<>(monthsInDefaultPartition());
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= partitionsAhead; i++) {
+                months.add(current.plusMonths(i));
+            }
+
+            Set<String> tables = new HashSet<>(partitionTables());
+            for (YearMonth month : months) {
+                if (!tables.contains(partitionName(month))) {
+                    createPartition(month);
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the month's partition and moves its rows out of the default partition, which would otherwise make
+     * the new range overlap. The table is filled before it is attached, so only the rows of that month move.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        String from = "'" + month.atDay(1) + "'";
+        String to = "'" + month.plusMonths(1).atDay(1) + "'";
+
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE messages)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= " + from + " AND timestamp < " + to + " RETURNING *) "
+                + "INSERT INTO " + partition + " SELECT * FROM moved");
+        jdbcTemplate.execute("ALTER TABLE messages ATTACH PARTITION " + partition
+                + " FOR VALUES FROM (" + from + ") TO (" + to + ")");
+        if (moved > 0) {
+            log.info("Moved {} messages of {} out of the default partition", moved, month);
+        }
+    }
+
+    private List<YearMonth> monthsInDefaultPartition() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT to_char(timestamp, 'YYYY-MM') FROM " + DEFAULT_PARTITION, String.class
+        ).stream().map(YearMonth::parse).toList();
+    }
+
+    private List<String> partitionTables() {
+        return jdbcTemplate.queryForList(
+                "SELECT tablename FROM pg_tables WHERE schemaname = current_schema() AND tablename ~ '^messages_y[0-9]{4}m[0-9]{2}$'",
+                String.class
+        );
+    }
+
+    /**
+     * Months that have a partition table, attached or already detached, older than the given month.
+     */
+    public Set<YearMonth> monthsBefore(YearMonth cutoff) {
+        Set<YearMonth> months = new TreeSet<>();
+        for (String table : partitionTables()) {
+            YearMonth month = YearMonth.parse(table, PARTITION_NAME);
+            if (month.isBefore(cutoff)) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Detaches the month's partition from messages if it is still attached. New rows can no longer reach it.
+     */
+    public void detach(YearMonth month) {
+        Set<String> attached = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'messages'",
+                String.class
+        ));
+
+        String partition = partitionName(month);
+        if (attached.contains(partition)) {
+            jdbcTemplate.execute("ALTER TABLE messages DETACH PARTITION " + partition);
+        }
+    }
+
+    public void drop(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    public static String partitionName(YearMonth month) {
+        return month.format(PARTITION_NAME);
+    }
+}
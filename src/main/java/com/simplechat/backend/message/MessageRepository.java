@@ -2,16 +2,53 @@ package com.simplechat.backend.message;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
-    List<Message> findBySenderIdAndRecipientIdOrSenderIdAndRecipientIdOrderByTimestampDesc(
-            Long senderId1, Long recipientId1,
-            Long senderId2, Long recipientId2,
+    @Query("""
+            SELECT new com.simplechat.backend.message.MessageRow(
+                m.id, m.content, m.timestamp, s.id, s.username, r.id, r.username,
+                a.id, a.fileName, a.contentType, a.sizeBytes)
+            FROM Message m JOIN m.sender s JOIN m.recipient r LEFT JOIN m.attachment a
+            WHERE (s.id = :userId AND r.id = :friendId) OR (s.id = :friendId AND r.id = :userId)
+            ORDER BY m.timestamp DESC
+            """)
+    List<MessageRow> findConversationRows(
+            @Param("userId") Long userId,
+            @Param("friendId") Long friendId,
             Pageable pageable
     );
-}
\ No newline at end of file
+
+    boolean existsByIdAndSenderIdAndRecipientId(Long id, Long senderId, Long recipientId);
+
+    long countBySenderIdAndRecipientIdOrSenderIdAndRecipientId(
+            Long senderId1, Long recipientId1,
+            Long senderId2, Long recipientId2
+    );
+
+    @Query("""
+            SELECT new com.simplechat.backend.message.MessageRow(
+                m.id, m.content, m.timestamp, s.id, s.username, r.id, r.username,
+                a.id, a.fileName, a.contentType, a.sizeBytes)
+            FROM Message m JOIN m.sender s JOIN m.recipient r LEFT JOIN m.attachment a
+            WHERE m.id IN :ids
+            """)
+    List<MessageRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+            SELECT new com.simplechat.backend.message.MessageRow(
+                m.id, m.content, m.timestamp, s.id, s.username, r.id, r.username,
+                a.id, a.fileName, a.contentType, a.sizeBytes)
+            FROM Message m JOIN m.sender s JOIN m.recipient r LEFT JOIN m.attachment a
+            WHERE m.id <= :upToId
+            ORDER BY m.id DESC
+            """)
+    List<MessageRow> findRowsUpTo(@Param("upToId") Long upToId, Pageable pageable);
+}
@@ -0,0 +1,52 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.attachment.AttachmentDto;
+import com.simplechat.backend.user.UserDto;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Flat projection of a message and the two usernames, read without loading either {@code User} entity.
+ */
+public record MessageRow(
+    Long id,
+    String content,
+    LocalDateTime timestamp,
+    Long senderId,
+    String senderUsername,
+    Long recipientId,
+    String recipientUsername,
+    Long attachmentId,
+    String attachmentFileName,
+    String attachmentContentType,
+    Long attachmentSize
+) {
+
+    public MessageDto toDto() {
+        return new MessageDto(
+            id,
+            content,
+            timestamp,
+            new UserDto(senderId, senderUsername),
+            new UserDto(recipientId, recipientUsername),
+            attachment()
+        );
+    }
+
+    public CompactMessageDto toCompactDto() {
+        return new CompactMessageDto(
+            id,
+            senderId,
+            recipientId,
+            content,
+            timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+            attachment()
+        );
+    }
+
+    private AttachmentDto attachment() {
+        return attachmentId != null
+                ? new AttachmentDto(attachmentId, attachmentFileName, attachmentContentType, attachmentSize)
+                : null;
+    }
+}
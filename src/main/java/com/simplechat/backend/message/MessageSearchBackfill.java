@@ -0,0 +1,33 @@
+package com.simplechat.backend.message;
+
+import jakarta.persistence.*;
+
+/**
+ * Progress of indexing the messages that predate the search index. A single row, moved down one batch at a time;
+ * without it there is nothing to backfill.
+ */
+@Entity
+@Table(name = "message_search_backfill")
+public class MessageSearchBackfill {
+
+    @Id
+    private Short id;
+
+    @Column(name = "next_message_id", nullable = false)
+    private Long nextMessageId;
+
+    protected MessageSearchBackfill() {
+    }
+
+    public Short getId() {
+        return id;
+    }
+
+    public Long getNextMessageId() {
+        return nextMessageId;
+    }
+
+    public void setNextMessageId(Long nextMessageId) {
+        this.nextMessageId = nextMessageId;
+    }
+}
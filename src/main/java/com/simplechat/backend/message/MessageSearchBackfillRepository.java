@@ -0,0 +1,24 @@
+package com.simplechat.backend.message;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MessageSearchBackfillRepository extends JpaRepository<MessageSearchBackfill, Short> {
+
+    /**
+     * The backfill progress, locked so only one node indexes a batch at a time. A node that finds the row locked
+     * skips it ({@code SKIP LOCKED}) instead of waiting for the other node's batch, so it gets nothing back.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT b FROM MessageSearchBackfill b")
+    Optional<MessageSearchBackfill> lockProgress();
+}
@@ -0,0 +1,194 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.config.SchedulingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Blind index over message content, so encrypted history can be searched without decrypting it.
+ * Each distinct word of a message is stored once per participant as an HMAC of the participant id and the word:
+ * the database only sees opaque tokens, the same word has different tokens for different users, and a search
+ * matches whole words only. Messages that predate the index are backfilled in the background, newest first.
+ */
+@Component
+public class MessageSearchIndex {
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int MAX_WORD_LENGTH = 64;
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final int TOKEN_BYTES = 16;
+    private static final String HMAC = "HmacSHA256";
+    private static final String INSERT_SQL = "INSERT INTO message_search_tokens (token, message_id) VALUES (?, ?)";
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageSearchTokenRepository tokenRepository;
+    private final MessageSearchBackfillRepository backfillRepository;
+    private final MessageRepository messageRepository;
+    private final SecretKeySpec indexKey;
+    private final int backfillBatchSize;
+
+    private volatile boolean backfillDone;
+
+    public MessageSearchIndex(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MessageSearchTokenRepository tokenRepository,
+            MessageSearchBackfillRepository backfillRepository,
+            MessageRepository messageRepository,
+            @Value("${app.encryption.key}") String encryptionSecret,
+            @Value("${app.messages.search.backfill-batch-size:200}") int backfillBatchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenRepository = tokenRepository;
+        this.backfillRepository = backfillRepository;
+        this.messageRepository = messageRepository;
+        // Derived from the content key rather than reusing it, so neither use weakens the other.
+        this.indexKey = new SecretKeySpec(
+                newMac(new SecretKeySpec(encryptionSecret.getBytes(StandardCharsets.UTF_8), HMAC))
+                        .doFinal("message-search-index".getBytes(StandardCharsets.UTF_8)),
+                HMAC);
+        this.backfillBatchSize = backfillBatchSize;
+    }
+
+    /**
+     * Indexes a new message for both participants. Runs in the transaction that saves the message.
+     */
+    public void index(Message message) {
+        insert(tokenRows(message.getId(), message.getContent(), message.getSender().getId(), message.getRecipient().getId()));
+    }
+
+    /**
+     * Ids of the user's messages below {@code beforeMessageId} that contain every word of the query, newest first.
+     *
+     * @throws IllegalArgumentException if the query has no searchable word or too many words
+     */
+    public List<Long> search(Long userId, String query, Long beforeMessageId, int limit) {
+        Set<String> words = words(query);
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("Search for at least one word of " + MIN_WORD_LENGTH + " or more characters");
+        }
+        if (words.size() > MAX_QUERY_WORDS) {
+            throw new IllegalArgumentException("Search for at most " + MAX_QUERY_WORDS + " words");
+        }
+
+        Mac mac = newMac(indexKey);
+        List<String> tokens = words.stream().map(word -> token(mac, userId, word)).toList();
+        return tokenRepository.findMessageIdsWithAll(
+                tokens, tokens.size(), beforeMessageId != null ? beforeMessageId : Long.MAX_VALUE, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Drops the tokens of messages that have left the database, up to and including {@code messageId}.
+     */
+    public void removeUpTo(Long messageId) {
+        tokenRepository.deleteUpTo(messageId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.messages.search.backfill-interval-ms:1000}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void backfill() {
+        if (backfillDone) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            MessageSearchBackfill progress = backfillRepository.lockProgress().orElse(null);
+            if (progress == null) {
+                // Either the backfill is finished or another node holds the row for its batch.
+                backfillDone = backfillRepository.count() == 0;
+                return;
+            }
+
+            List<MessageRow> rows = messageRepository.findRowsUpTo(progress.getNextMessageId(), PageRequest.of(0, backfillBatchSize));
+            if (rows.isEmpty()) {
+                backfillRepository.delete(progress);
+                backfillDone = true;
+                log.info("Search index backfill finished");
+                return;
+            }
+
+            List<Object[]> tokenRows = new ArrayList<>();
+            for (MessageRow row : rows) {
+                tokenRows.addAll(tokenRows(row.id(), row.content(), row.senderId(), row.recipientId()));
+            }
+            insert(tokenRows);
+            progress.setNextMessageId(rows.get(rows.size() - 1).id() - 1);
+        });
+    }
+
+    private void insert(List<Object[]> tokenRows) {
+        if (!tokenRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, tokenRows);
+        }
+    }
+
+    private List<Object[]> tokenRows(Long messageId, String content, Long senderId, Long recipientId) {
+        Set<String> words = words(content);
+        Mac mac = newMac(indexKey);
+        List<Object[]> rows = new ArrayList<>();
+
+        for (String word : words) {
+            rows.add(new Object[]{token(mac, senderId, word), messageId});
+            if (!recipientId.equals(senderId)) {
+                rows.add(new Object[]{token(mac, recipientId, word), messageId});
+            }
+        }
+        return rows;
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        for (String word : WORD_SEPARATOR.split(normalized)) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                words.add(word.length() > MAX_WORD_LENGTH ? word.substring(0, MAX_WORD_LENGTH) : word);
+            }
+        }
+        return words;
+    }
+
+    private static String token(Mac mac, Long userId, String word) {
+        mac.update(Long.toString(userId).getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(word.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, TOKEN_BYTES));
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialise the search index key", e);
+        }
+    }
+}
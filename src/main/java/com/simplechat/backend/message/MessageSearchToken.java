@@ -0,0 +1,59 @@
+package com.simplechat.backend.message;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One word of one message, as seen by one participant. The token is a keyed hash, so the table reveals
+ * neither the words nor whether two users wrote the same one. Rows are written in batches by {@link MessageSearchIndex}.
+ */
+@Entity
+@Table(name = "message_search_tokens")
+@IdClass(MessageSearchToken.Key.class)
+public class MessageSearchToken {
+
+    @Id
+    @Column(name = "token", length = 22)
+    private String token;
+
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+
+    protected MessageSearchToken() {
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public static class Key implements Serializable {
+
+        private String token;
+        private Long messageId;
+
+        public Key() {
+        }
+
+        public Key(String token, Long messageId) {
+            this.token = token;
+            this.messageId = messageId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Objects.equals(token, key.token) && Objects.equals(messageId, key.messageId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(token, messageId);
+        }
+    }
+}
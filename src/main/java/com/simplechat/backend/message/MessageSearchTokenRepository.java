@@ -0,0 +1,38 @@
+package com.simplechat.backend.message;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MessageSearchTokenRepository extends JpaRepository<MessageSearchToken, MessageSearchToken.Key> {
+
+    /**
+     * Ids of the messages below {@code beforeMessageId} that carry every one of the tokens, newest first.
+     */
+    @Query("""
+            SELECT t.messageId FROM MessageSearchToken t
+            WHERE t.token IN :tokens AND t.messageId < :beforeMessageId
+            GROUP BY t.messageId
+            HAVING COUNT(t) = :tokenCount
+            ORDER BY t.messageId DESC
+            """)
+    List<Long> findMessageIdsWithAll(
+            @Param("tokens") Collection<String> tokens,
+            @Param("tokenCount") long tokenCount,
+            @Param("beforeMessageId") long beforeMessageId,
+            Pageable pageable
+    );
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM MessageSearchToken t WHERE t.messageId <= :upToMessageId")
+    int deleteUpTo(@Param("upToMessageId") Long upToMessageId);
+}
@@ -1,27 +1,98 @@
 package com.simplechat.backend.message;
 
 import java.util.stream.Collectors;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import com.simplechat.backend.attachment.AttachmentDto;
+import com.simplechat.backend.attachment.AttachmentService;
+import com.simplechat.backend.config.ReadYourWritesTracker;
 import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserDto;
 import com.simplechat.backend.user.UserRepository;
+import com.simplechat.backend.util.AttributeEncryptor;
+import com.simplechat.backend.wire.NegotiatedPayload;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import java.time.LocalDateTime;
 
 @Service
 public class MessageService {
 
+    private static final int PAGE_SIZE = 20;
+    private static final int SEARCH_PAGE_SIZE = 20;
+
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final AttributeEncryptor attributeEncryptor;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final MessageSearchIndex messageSearchIndex;
+    private final AttachmentService attachmentService;
+    private final MessageDeduplicator messageDeduplicator;
+    private final TransactionTemplate transactionTemplate;
 
-    public MessageService(MessageRepository messageRepository, UserRepository userRepository) {
+    public MessageService(
+            MessageRepository messageRepository,
+            UserRepository userRepository,
+            MessageArchiveService messageArchiveService,
+            AttributeEncryptor attributeEncryptor,
+            ReadYourWritesTracker readYourWritesTracker,
+            MessageSearchIndex messageSearchIndex,
+            AttachmentService attachmentService,
+            MessageDeduplicator messageDeduplicator,
+            TransactionTemplate transactionTemplate
+    ) {
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
+        this.messageArchiveService = messageArchiveService;
+        this.attributeEncryptor = attributeEncryptor;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.messageSearchIndex = messageSearchIndex;
+        this.attachmentService = attachmentService;
+        this.messageDeduplicator = messageDeduplicator;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Saves a new message, unless the sender already sent one under the same client message id:
+     * then nothing is saved and the stored message is returned as a resend.
+     */
+    public SentMessage send(User sender, ChatMessageRequest request) {
+        String clientMessageId = request.clientMessageId();
+        if (clientMessageId == null) {
+            return SentMessage.saved(transactionTemplate.execute(status -> saveMessage(sender, request)));
+        }
+
+        Optional<NegotiatedPayload> recent = messageDeduplicator.findRecent(sender.getId(), clientMessageId);
+        if (recent.isPresent()) {
+            return SentMessage.resent(recent.get());
+        }
+
+        try {
+            SentMessage sent = SentMessage.saved(transactionTemplate.execute(status -> saveMessage(sender, request)));
+            messageDeduplicator.remember(sender.getId(), clientMessageId, sent.payload());
+            return sent;
+        } catch (DuplicateKeyException e) {
+            // Sent before, through another node or longer ago than the cache remembers
+            return messageDeduplicator.findStored(sender.getId(), clientMessageId)
+                    .map(SentMessage::resent)
+                    .orElseThrow(() -> e);
+        }
     }
 
+    @Transactional
     public Message saveMessage(User sender, ChatMessageRequest request) {
+        if (request.clientMessageId() != null) {
+            messageDeduplicator.claim(sender.getId(), request.clientMessageId());
+        }
+
         User recipient = userRepository.findById(request.recipientId())
                 .orElseThrow(() -> new IllegalArgumentException("Recipient not found"));
 
@@ -30,21 +101,90 @@ public class MessageService {
         message.setRecipient(recipient);
         message.setContent(request.content());
         message.setTimestamp(LocalDateTime.now());
+        if (request.attachmentId() != null) {
+            message.setAttachment(attachmentService.getSendable(request.attachmentId(), sender, recipient));
+        }
+
+        Message savedMessage = messageRepository.save(message);
+        if (request.clientMessageId() != null) {
+            messageDeduplicator.bind(sender.getId(), request.clientMessageId(), savedMessage.getId());
+        }
+        messageSearchIndex.index(savedMessage);
+        readYourWritesTracker.recordWrite(sender.getId(), recipient.getId());
 
-        return messageRepository.save(message);
+        return savedMessage;
     }
 
+    @Transactional(readOnly = true)
     public List<MessageDto> getChatHistory(User currentUser, Long friendId, int page) {
-        Pageable pageable = PageRequest.of(page, 20);
+        return readYourWritesTracker.read(currentUser.getId(), () -> loadChatHistory(currentUser, friendId, page));
+    }
+
+    /**
+     * The user's messages containing every word of the query, newest first, continuing below {@code beforeMessageId}.
+     * Only the matching messages are read and decrypted.
+     */
+    @Transactional(readOnly = true)
+    public List<MessageDto> search(User currentUser, String query, Long beforeMessageId) {
+        return readYourWritesTracker.read(currentUser.getId(), () -> {
+            List<Long> ids = messageSearchIndex.search(currentUser.getId(), query, beforeMessageId, SEARCH_PAGE_SIZE);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            return messageRepository.findRowsByIdIn(ids).stream()
+                    .sorted((m1, m2) -> Long.compare(m2.id(), m1.id()))
+                    .map(MessageRow::toDto)
+                    .toList();
+        });
+    }
 
-        return messageRepository.findBySenderIdAndRecipientIdOrSenderIdAndRecipientIdOrderByTimestampDesc(
-                currentUser.getId(), friendId,
-                friendId, currentUser.getId(),
-                pageable
-        )
+    private List<MessageDto> loadChatHistory(User currentUser, Long friendId, int page) {
+        Pageable pageable = PageRequest.of(page, PAGE_SIZE);
+
+        List<MessageDto> history = messageRepository.findConversationRows(currentUser.getId(), friendId, pageable)
         .stream()
-        .map(MessageDto::fromMessage)
-        .sorted((m1, m2) -> m1.getTimestamp().compareTo(m2.getTimestamp()))
-        .collect(Collectors.toList());
+        .map(MessageRow::toDto)
+        .collect(Collectors.toCollection(ArrayList::new));
+
+        // Only a page that runs past the oldest row still in the database continues into the archive.
+        if (history.size() < PAGE_SIZE && messageArchiveService.hasArchives()) {
+            history.addAll(getArchivedHistory(currentUser, friendId, page, history.size()));
+        }
+
+        history.sort((m1, m2) -> m1.getTimestamp().compareTo(m2.getTimestamp()));
+        return history;
+    }
+
+    private List<MessageDto> getArchivedHistory(User currentUser, Long friendId, int page, int rowsFromDatabase) {
+        long rowsInDatabase = page == 0 ? rowsFromDatabase
+                : messageRepository.countBySenderIdAndRecipientIdOrSenderIdAndRecipientId(
+                        currentUser.getId(), friendId, friendId, currentUser.getId());
+        int skip = (int) Math.max(0, (long) page * PAGE_SIZE - rowsInDatabase);
+
+        List<ArchivedMessage> archived = messageArchiveService.findConversation(
+                currentUser.getId(), friendId, skip, PAGE_SIZE - rowsFromDatabase);
+        if (archived.isEmpty()) {
+            return List.of();
+        }
+
+        UserDto me = UserDto.fromUser(currentUser);
+        UserDto friend = userRepository.findById(friendId).map(UserDto::fromUser)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        Map<Long, AttachmentDto> attachments = attachmentService.describe(archived.stream()
+                .map(ArchivedMessage::attachmentId)
+                .filter(Objects::nonNull)
+                .toList());
+
+        return archived.stream()
+                .map(message -> new MessageDto(
+                        message.id(),
+                        attributeEncryptor.convertToEntityAttribute(message.encryptedContent()),
+                        message.timestamp(),
+                        message.senderId().equals(me.id()) ? me : friend,
+                        message.senderId().equals(me.id()) ? friend : me,
+                        message.attachmentId() != null ? attachments.get(message.attachmentId()) : null
+                ))
+                .toList();
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.simplechat.backend.message;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A message that reached an offline recipient after their in-memory pending queue was full.
+ * The row only points at the message; content is read from {@code messages} when it is delivered.
+ */
+@Entity
+@Table(name = "pending_deliveries")
+public class PendingDelivery {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient_id", nullable = false)
+    private Long recipientId;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "queued_at", nullable = false)
+    private Instant queuedAt;
+
+    protected PendingDelivery() {
+    }
+
+    public PendingDelivery(Long recipientId, Long messageId, Instant queuedAt) {
+        this.recipientId = recipientId;
+        this.messageId = messageId;
+        this.queuedAt = queuedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRecipientId() {
+        return recipientId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public Instant getQueuedAt() {
+        return queuedAt;
+    }
+}
@@ -0,0 +1,39 @@
+package com.simplechat.backend.message;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PendingDeliveryRepository extends JpaRepository<PendingDelivery, Long> {
+
+    /**
+     * The newest spilled messages for a recipient, newest first. Rows whose message has since been archived are skipped.
+     */
+    @Query("""
+            SELECT new com.simplechat.backend.message.MessageRow(
+                m.id, m.content, m.timestamp, s.id, s.username, r.id, r.username,
+                a.id, a.fileName, a.contentType, a.sizeBytes)
+            FROM PendingDelivery p JOIN Message m ON m.id = p.messageId JOIN m.sender s JOIN m.recipient r LEFT JOIN m.attachment a
+            WHERE p.recipientId = :recipientId
+            ORDER BY m.id DESC
+            """)
+    List<MessageRow> findNewestRows(@Param("recipientId") Long recipientId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PendingDelivery p WHERE p.recipientId = :recipientId AND p.messageId <= :upToMessageId")
+    int deleteDelivered(@Param("recipientId") Long recipientId, @Param("upToMessageId") Long upToMessageId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PendingDelivery p WHERE p.queuedAt < :cutoff")
+    int deleteQueuedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,222 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.config.ReplicaRoutingDataSource;
+import com.simplechat.backend.config.SchedulingConfig;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.wire.NegotiatedPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds chat messages for recipients with no session subscribed to their private queue, where the broker would drop them,
+ * and hands them over in one batch when the recipient subscribes to {@code /app/messages.pending} after reconnecting.
+ * Messages wait in memory up to a per-user and a per-node cap; past either cap, or once a queue has waited longer than
+ * the idle limit, they spill to {@code pending_deliveries}. A batch carries at most the newest {@code max-batch}
+ * messages so it stays within the session send buffer; anything older is left to the conversation history.
+ */
+@Service
+public class PendingDeliveryService {
+
+    private static final String PRIVATE_QUEUE = "/user/queue/private";
+
+    private final SimpUserRegistry userRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PendingDeliveryRepository pendingDeliveryRepository;
+    private final int maxPerUser;
+    private final int maxInMemory;
+    private final int maxBatch;
+    private final Duration memoryIdle;
+    private final Duration retention;
+
+    private final Map<Long, PendingQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger inMemory = new AtomicInteger();
+    private final Counter spilled;
+
+    public PendingDeliveryService(
+            SimpUserRegistry userRegistry,
+            SimpMessagingTemplate messagingTemplate,
+            PendingDeliveryRepository pendingDeliveryRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.messages.pending.memory-per-user:100}") int maxPerUser,
+            @Value("${app.messages.pending.memory-max:10000}") int maxInMemory,
+            @Value("${app.messages.pending.max-batch:100}") int maxBatch,
+            @Value("${app.messages.pending.memory-idle-ms:300000}") long memoryIdleMillis,
+            @Value("${app.messages.pending.retention-days:30}") int retentionDays
+    ) {
+        this.userRegistry = userRegistry;
+        this.messagingTemplate = messagingTemplate;
+        this.pendingDeliveryRepository = pendingDeliveryRepository;
+        this.maxPerUser = maxPerUser;
+        this.maxInMemory = maxInMemory;
+        this.maxBatch = maxBatch;
+        this.memoryIdle = Duration.ofMillis(memoryIdleMillis);
+        this.retention = Duration.ofDays(retentionDays);
+
+        Gauge.builder("messages.pending.memory", inMemory, AtomicInteger::get)
+                .description("Messages held in memory for offline recipients")
+                .register(meterRegistry);
+        this.spilled = Counter.builder("messages.pending.spilled")
+                .description("Messages for offline recipients written to the database instead of held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a message sent to the user's private queue right now would reach at least one of their sessions.
+     */
+    public boolean isReceiving(String username) {
+        SimpUser user = userRegistry.getUser(username);
+        return user != null && user.getSessions().stream()
+                .flatMap(session -> session.getSubscriptions().stream())
+                .anyMatch(subscription -> PRIVATE_QUEUE.equals(subscription.getDestination()));
+    }
+
+    /**
+     * Holds a message for a recipient that is not receiving.
+     */
+    public void enqueue(Message message) {
+        User recipient = message.getRecipient();
+        PendingMessage pending = new PendingMessage(MessageDto.fromMessage(message), CompactMessageDto.fromMessage(message));
+
+        if (!hold(recipient, pending)) {
+            pendingDeliveryRepository.save(new PendingDelivery(recipient.getId(), message.getId(), Instant.now()));
+            spilled.increment();
+        }
+        // The recipient may have subscribed and collected their batch while this message was being queued.
+        deliverIfReceiving(recipient.getId(), recipient.getUsername());
+    }
+
+    /**
+     * Takes everything waiting for the user, oldest first, as the reply to their catch-up subscription.
+     */
+    public NegotiatedPayload drain(Long userId) {
+        List<PendingMessage> batch = take(userId);
+        return new NegotiatedPayload(
+                batch.stream().map(PendingMessage::json).toList(),
+                batch.stream().map(PendingMessage::compact).toList());
+    }
+
+    @Scheduled(fixedDelayString = "${app.messages.pending.spill-interval-ms:60000}", scheduler = SchedulingConfig.MAINTENANCE)
+    public void spillIdle() {
+        Instant idleCutoff = Instant.now().minus(memoryIdle);
+        queues.forEach((userId, queue) -> {
+            if (queue.firstQueuedAt.isBefore(idleCutoff)) {
+                spill(userId);
+            }
+        });
+        pendingDeliveryRepository.deleteQueuedBefore(Instant.now().minus(retention));
+    }
+
+    @PreDestroy
+    public void spillAll() {
+        // Whatever is still in memory would otherwise be lost with this node.
+        queues.keySet().forEach(this::spill);
+    }
+
+    private boolean hold(User recipient, PendingMessage pending) {
+        if (inMemory.incrementAndGet() > maxInMemory) {
+            inMemory.decrementAndGet();
+            return false;
+        }
+
+        while (true) {
+            PendingQueue queue = queues.computeIfAbsent(recipient.getId(), id -> new PendingQueue(recipient.getUsername()));
+
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                if (queue.messages.size() >= maxPerUser) {
+                    inMemory.decrementAndGet();
+                    return false;
+                }
+                queue.messages.add(pending);
+                return true;
+            }
+        }
+    }
+
+    private PendingQueue removeQueue(Long userId) {
+        PendingQueue queue = queues.remove(userId);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            queue.removed = true;
+            inMemory.addAndGet(-queue.messages.size());
+            return queue;
+        }
+    }
+
+    private List<PendingMessage> take(Long userId) {
+        PendingQueue queue = removeQueue(userId);
+        List<PendingMessage> batch = queue != null ? new ArrayList<>(queue.messages) : new ArrayList<>();
+
+        // Spilled rows may have been written moments ago, so they are read from the primary.
+        List<MessageRow> rows = ReplicaRoutingDataSource.onPrimary(
+                () -> pendingDeliveryRepository.findNewestRows(userId, PageRequest.of(0, maxBatch)));
+        if (!rows.isEmpty()) {
+            // Rows older than the batch are dropped with it; those messages are still in the history.
+            pendingDeliveryRepository.deleteDelivered(userId, rows.get(0).id());
+            rows.forEach(row -> batch.add(new PendingMessage(row.toDto(), row.toCompactDto())));
+        }
+
+        batch.sort(Comparator.comparing(message -> message.json().getId()));
+        return batch.subList(Math.max(0, batch.size() - maxBatch), batch.size());
+    }
+
+    private void spill(Long userId) {
+        PendingQueue queue = removeQueue(userId);
+        if (queue == null) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        pendingDeliveryRepository.saveAll(queue.messages.stream()
+                .map(message -> new PendingDelivery(userId, message.json().getId(), now))
+                .toList());
+        spilled.increment(queue.messages.size());
+        deliverIfReceiving(userId, queue.username);
+    }
+
+    private void deliverIfReceiving(Long userId, String username) {
+        if (!isReceiving(username)) {
+            return;
+        }
+        for (PendingMessage message : take(userId)) {
+            messagingTemplate.convertAndSend("/user/" + username + "/queue/private",
+                    new NegotiatedPayload(message.json(), message.compact()));
+        }
+    }
+
+    private record PendingMessage(MessageDto json, CompactMessageDto compact) {}
+
+    private static final class PendingQueue {
+
+        private final String username;
+        private final Instant firstQueuedAt = Instant.now();
+        private final List<PendingMessage> messages = new ArrayList<>();
+        private boolean removed;
+
+        private PendingQueue(String username) {
+            this.username = username;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.wire.NegotiatedPayload;
+
+/**
+ * The outcome of a send: the message as delivered, and the saved entity unless this was a resend of a stored message.
+ */
+public record SentMessage(NegotiatedPayload payload, Message message) {
+
+    static SentMessage saved(Message message) {
+        return new SentMessage(
+                new NegotiatedPayload(MessageDto.fromMessage(message), CompactMessageDto.fromMessage(message)), message);
+    }
+
+    static SentMessage resent(NegotiatedPayload payload) {
+        return new SentMessage(payload, null);
+    }
+
+    /**
+     * Whether the message was already stored and delivered by an earlier send with the same client message id.
+     */
+    public boolean isResend() {
+        return message == null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.simplechat.backend.presence;
+
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserDto;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    private final PresenceService presenceService;
+
+    public PresenceController(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @GetMapping("/friends")
+    public ResponseEntity<List<UserDto>> getOnlineFriends(Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(presenceService.getOnlineFriends(currentUser));
+    }
+}
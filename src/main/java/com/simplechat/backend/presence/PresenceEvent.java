@@ -0,0 +1,7 @@
+package com.simplechat.backend.presence;
+
+public record PresenceEvent(
+    Long userId,
+    String username,
+    boolean online
+) {}
@@ -0,0 +1,196 @@
+package com.simplechat.backend.presence;
+
+import com.simplechat.backend.friend.FriendService;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Tracks which users have at least one open WebSocket session and tells their online friends.
+ * Session churn is coalesced per user: going offline waits for a grace period, and a user's
+ * friends hear about them at most once per fan-out interval, so reconnect storms stay quiet.
+ */
+@Service
+public class PresenceService {
+
+    private final FriendService friendService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TaskScheduler taskScheduler;
+    private final long offlineGraceMillis;
+    private final long minFanoutIntervalMillis;
+
+    private final Map<Long, UserPresence> presenceByUserId = new ConcurrentHashMap<>();
+    private final Map<String, UserPresence> presenceBySessionId = new ConcurrentHashMap<>();
+
+    public PresenceService(
+            FriendService friendService,
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("realtimeTaskScheduler") TaskScheduler taskScheduler,
+            @Value("${app.presence.offline-grace-ms:5000}") long offlineGraceMillis,
+            @Value("${app.presence.min-fanout-interval-ms:2000}") long minFanoutIntervalMillis
+    ) {
+        this.friendService = friendService;
+        this.messagingTemplate = messagingTemplate;
+        this.taskScheduler = taskScheduler;
+        this.offlineGraceMillis = offlineGraceMillis;
+        this.minFanoutIntervalMillis = minFanoutIntervalMillis;
+    }
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        User user = toUser(event.getUser());
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+
+        if (user == null || sessionId == null) {
+            return;
+        }
+
+        while (true) {
+            UserPresence presence = presenceByUserId.computeIfAbsent(
+                    user.getId(), id -> new UserPresence(id, user.getUsername()));
+
+            synchronized (presence) {
+                if (presence.removed) {
+                    continue;
+                }
+                presence.sessionIds.add(sessionId);
+                presenceBySessionId.put(sessionId, presence);
+                scheduleFanout(presence, 0);
+                return;
+            }
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        UserPresence presence = presenceBySessionId.remove(event.getSessionId());
+
+        if (presence == null) {
+            return;
+        }
+
+        synchronized (presence) {
+            presence.sessionIds.remove(event.getSessionId());
+            if (presence.sessionIds.isEmpty()) {
+                presence.lastSessionClosedAt = System.currentTimeMillis();
+                scheduleFanout(presence, offlineGraceMillis);
+            }
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        UserPresence presence = presenceByUserId.get(userId);
+        return presence != null && !presence.sessionIds.isEmpty();
+    }
+
+    /**
+     * Returns the friends of the given user that currently have an open session.
+     */
+    public List<UserDto> getOnlineFriends(User currentUser) {
+        return friendService.getCachedFriends(currentUser.getId()).values().stream()
+                .filter(friend -> isOnline(friend.id()))
+                .toList();
+    }
+
+    /**
+     * Must be called while holding the presence lock. A fan-out that is already scheduled
+     * picks up the latest state when it runs, so nothing new is scheduled in that case.
+     */
+    private void scheduleFanout(UserPresence presence, long delayMillis) {
+        if (presence.pendingFanout != null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long earliest = presence.lastFanoutAt + minFanoutIntervalMillis;
+        long runAt = Math.max(now + delayMillis, earliest);
+
+        presence.pendingFanout = taskScheduler.schedule(() -> flush(presence), Instant.ofEpochMilli(runAt));
+    }
+
+    private void flush(UserPresence presence) {
+        boolean online;
+
+        synchronized (presence) {
+            presence.pendingFanout = null;
+            online = !presence.sessionIds.isEmpty();
+
+            if (!online) {
+                long graceLeft = presence.lastSessionClosedAt + offlineGraceMillis - System.currentTimeMillis();
+                if (graceLeft > 0) {
+                    scheduleFanout(presence, graceLeft);
+                    return;
+                }
+            }
+
+            if (online == presence.announcedOnline) {
+                if (!online) {
+                    release(presence);
+                }
+                return;
+            }
+
+            presence.announcedOnline = online;
+            presence.lastFanoutAt = System.currentTimeMillis();
+
+            if (!online) {
+                release(presence);
+            }
+        }
+
+        fanout(new PresenceEvent(presence.userId, presence.username, online));
+    }
+
+    private void release(UserPresence presence) {
+        presence.removed = true;
+        presenceByUserId.remove(presence.userId, presence);
+    }
+
+    private void fanout(PresenceEvent event) {
+        for (UserDto friend : friendService.getCachedFriends(event.userId()).values()) {
+            if (isOnline(friend.id())) {
+                messagingTemplate.convertAndSend("/user/" + friend.username() + "/queue/presence", event);
+            }
+        }
+    }
+
+    private static User toUser(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return null;
+    }
+
+    private static final class UserPresence {
+
+        private final Long userId;
+        private final String username;
+        private final Set<String> sessionIds = ConcurrentHashMap.newKeySet();
+        private boolean announcedOnline;
+        private boolean removed;
+        private long lastFanoutAt;
+        private long lastSessionClosedAt;
+        private ScheduledFuture<?> pendingFanout;
+
+        private UserPresence(Long userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+    }
+}
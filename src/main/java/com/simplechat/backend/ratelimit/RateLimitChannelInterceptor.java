@@ -0,0 +1,72 @@
+package com.simplechat.backend.ratelimit;
+
+import com.simplechat.backend.user.User;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Applies {@link RateLimitPolicies} to STOMP SEND frames. A rejected frame is dropped
+ * and the sender is told on {@code /user/queue/errors} when to retry.
+ */
+@Component
+public class RateLimitChannelInterceptor implements ChannelInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitPolicies policies;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public RateLimitChannelInterceptor(
+            RateLimiter rateLimiter,
+            RateLimitPolicies policies,
+            // Lazy because the messaging template is built from the broker configuration that registers this interceptor.
+            @Lazy SimpMessagingTemplate messagingTemplate
+    ) {
+        this.rateLimiter = rateLimiter;
+        this.policies = policies;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        RateLimitPolicy policy = policies.forStompDestination(accessor.getDestination());
+        if (policy == null) {
+            return message;
+        }
+
+        Principal principal = accessor.getUser();
+        String key = principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user
+                ? "user:" + user.getId()
+                : "session:" + accessor.getSessionId();
+
+        Duration wait = rateLimiter.tryAcquire(policy, key);
+        if (wait.isZero()) {
+            return message;
+        }
+
+        if (principal != null) {
+            messagingTemplate.convertAndSend("/user/" + principal.getName() + "/queue/errors", Map.of(
+                    "error", "Too many requests, please slow down",
+                    "destination", accessor.getDestination(),
+                    "retryAfterMs", wait.toMillis()
+            ));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.simplechat.backend.ratelimit;
+
+import com.simplechat.backend.user.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Applies {@link RateLimitPolicies} to HTTP requests. Runs after {@code JwtAuthenticationFilter} so
+ * authenticated requests are limited per user rather than per IP.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitPolicies policies;
+
+    public RateLimitFilter(RateLimiter rateLimiter, RateLimitPolicies policies) {
+        this.rateLimiter = rateLimiter;
+        this.policies = policies;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimitPolicy policy = policies.forHttpRequest(request.getMethod(), path);
+
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Duration wait = rateLimiter.tryAcquire(policy, clientKey(request));
+        if (wait.isZero()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((wait.toMillis() + 999) / 1000));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests, please try again later\"}");
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return "user:" + user.getId();
+        }
+        // The client's address behind the reverse proxy, see server.forward-headers-strategy
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,73 @@
+package com.simplechat.backend.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Which requests are rate limited, and how hard. Anonymous endpoints are keyed by client IP, the rest by user id.
+ */
+@Component
+public class RateLimitPolicies {
+
+    private final RateLimitPolicy login;
+    private final RateLimitPolicy accountEmail;
+    private final RateLimitPolicy authCode;
+    private final RateLimitPolicy search;
+    private final RateLimitPolicy chatSend;
+
+    public RateLimitPolicies(
+            @Value("${app.ratelimit.login.capacity:10}") int loginCapacity,
+            @Value("${app.ratelimit.login.period-ms:60000}") long loginPeriodMillis,
+            @Value("${app.ratelimit.account-email.capacity:3}") int accountEmailCapacity,
+            @Value("${app.ratelimit.account-email.period-ms:900000}") long accountEmailPeriodMillis,
+            @Value("${app.ratelimit.auth-code.capacity:10}") int authCodeCapacity,
+            @Value("${app.ratelimit.auth-code.period-ms:900000}") long authCodePeriodMillis,
+            @Value("${app.ratelimit.search.capacity:20}") int searchCapacity,
+            @Value("${app.ratelimit.search.period-ms:5000}") long searchPeriodMillis,
+            @Value("${app.ratelimit.chat-send.capacity:30}") int chatSendCapacity,
+            @Value("${app.ratelimit.chat-send.period-ms:10000}") long chatSendPeriodMillis
+    ) {
+        this.login = new RateLimitPolicy("login", loginCapacity, Duration.ofMillis(loginPeriodMillis));
+        this.accountEmail = new RateLimitPolicy("account-email", accountEmailCapacity, Duration.ofMillis(accountEmailPeriodMillis));
+        this.authCode = new RateLimitPolicy("auth-code", authCodeCapacity, Duration.ofMillis(authCodePeriodMillis));
+        this.search = new RateLimitPolicy("search", searchCapacity, Duration.ofMillis(searchPeriodMillis));
+        this.chatSend = new RateLimitPolicy("chat-send", chatSendCapacity, Duration.ofMillis(chatSendPeriodMillis));
+    }
+
+    /**
+     * @return the policy for an HTTP request, or {@code null} if it is not limited
+     */
+    public RateLimitPolicy forHttpRequest(String method, String path) {
+        if ("GET".equals(method)) {
+            return "/api/users/search".equals(path) || "/api/messages/search".equals(path) ? search : null;
+        }
+        if (!"POST".equals(method)) {
+            return null;
+        }
+        return switch (path) {
+            // BCrypt on every attempt
+            case "/api/auth/login" -> login;
+            // Both send mail
+            case "/api/auth/register", "/api/auth/forgot-password" -> accountEmail;
+            // Six character codes, so guessing has to be slow
+            case "/api/auth/verify", "/api/auth/reset-password" -> authCode;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the policy for a STOMP SEND destination, or {@code null} if it is not limited
+     */
+    public RateLimitPolicy forStompDestination(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        return switch (destination) {
+            case "/app/chat.send" -> chatSend;
+            case "/app/users.search" -> search;
+            default -> null;
+        };
+    }
+}
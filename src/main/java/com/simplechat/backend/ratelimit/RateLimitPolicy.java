@@ -0,0 +1,30 @@
+package com.simplechat.backend.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Allows bursts of up to {@code capacity} requests, refilled evenly over {@code period}.
+ */
+public record RateLimitPolicy(
+    String name,
+    int capacity,
+    Duration period
+) {
+
+    public RateLimitPolicy {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Rate limit capacity must be at least 1");
+        }
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Rate limit period must be positive");
+        }
+    }
+
+    long intervalNanos() {
+        return period.toNanos() / capacity;
+    }
+
+    long burstToleranceNanos() {
+        return intervalNanos() * capacity;
+    }
+}
@@ -0,0 +1,70 @@
+package com.simplechat.backend.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token buckets per policy and key (a user id or a client IP).
+ * The bucket maps are concurrent hash maps, so unrelated keys never contend; buckets that have refilled are evicted.
+ */
+@Component
+public class RateLimiter {
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Map<String, TokenBucket>> bucketsByPolicy = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectionsByPolicy = new ConcurrentHashMap<>();
+
+    public RateLimiter(MeterRegistry meterRegistry, @Value("${app.ratelimit.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        Gauge.builder("ratelimit.buckets", this, RateLimiter::bucketCount)
+                .description("Token buckets currently held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a permit for {@code key} under {@code policy}.
+     *
+     * @return {@link Duration#ZERO} if allowed, otherwise how long until the next permit
+     */
+    public Duration tryAcquire(RateLimitPolicy policy, String key) {
+        if (!enabled) {
+            return Duration.ZERO;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = bucketsByPolicy
+                .computeIfAbsent(policy.name(), name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new TokenBucket(now));
+
+        long waitNanos = bucket.tryAcquire(policy, now);
+        if (waitNanos == 0) {
+            return Duration.ZERO;
+        }
+
+        rejectionsByPolicy.computeIfAbsent(policy.name(), name -> Counter.builder("ratelimit.rejected")
+                .description("Requests rejected by a rate limit")
+                .tag("policy", name)
+                .register(meterRegistry)).increment();
+        return Duration.ofNanos(waitNanos);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ratelimit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        bucketsByPolicy.values().forEach(buckets -> buckets.values().removeIf(bucket -> bucket.isFull(now)));
+    }
+
+    private double bucketCount() {
+        return bucketsByPolicy.values().stream().mapToInt(Map::size).sum();
+    }
+}
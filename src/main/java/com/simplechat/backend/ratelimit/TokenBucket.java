@@ -0,0 +1,47 @@
+package com.simplechat.backend.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket kept as a single "theoretical arrival time" (the GCRA formulation).
+ * Each permit pushes the time forward by one refill interval; a request is allowed while the time stays
+ * within {@code capacity} intervals of now. Concurrent callers race on one CAS instead of taking a lock.
+ */
+final class TokenBucket {
+
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(long nowNanos) {
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one permit, or returns how many nanoseconds to wait before one is available.
+     *
+     * @return 0 if the permit was granted, otherwise the wait in nanoseconds
+     */
+    long tryAcquire(RateLimitPolicy policy, long nowNanos) {
+        long interval = policy.intervalNanos();
+        long tolerance = policy.burstToleranceNanos();
+
+        while (true) {
+            long current = theoreticalArrivalNanos.get();
+            long next = Math.max(current, nowNanos) + interval;
+            long overshoot = next - nowNanos - tolerance;
+
+            if (overshoot > 0) {
+                return overshoot;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * A bucket is idle once it has refilled completely; dropping it then loses no state.
+     */
+    boolean isFull(long nowNanos) {
+        return theoreticalArrivalNanos.get() <= nowNanos;
+    }
+}
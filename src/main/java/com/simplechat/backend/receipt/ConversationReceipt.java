@@ -0,0 +1,71 @@
+package com.simplechat.backend.receipt;
+
+import jakarta.persistence.*;
+
+/**
+ * How far a reader has received and read the messages one sender sent them.
+ * One row per direction of a conversation, advanced in place as acks arrive.
+ */
+@Entity
+@Table(
+    name = "conversation_receipts",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"reader_id", "sender_id"})
+)
+public class ConversationReceipt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reader_id", nullable = false)
+    private Long readerId;
+
+    @Column(name = "sender_id", nullable = false)
+    private Long senderId;
+
+    @Column(name = "delivered_up_to", nullable = false)
+    private Long deliveredUpTo;
+
+    @Column(name = "read_up_to", nullable = false)
+    private Long readUpTo;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getReaderId() {
+        return readerId;
+    }
+
+    public void setReaderId(Long readerId) {
+        this.readerId = readerId;
+    }
+
+    public Long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(Long senderId) {
+        this.senderId = senderId;
+    }
+
+    public Long getDeliveredUpTo() {
+        return deliveredUpTo;
+    }
+
+    public void setDeliveredUpTo(Long deliveredUpTo) {
+        this.deliveredUpTo = deliveredUpTo;
+    }
+
+    public Long getReadUpTo() {
+        return readUpTo;
+    }
+
+    public void setReadUpTo(Long readUpTo) {
+        this.readUpTo = readUpTo;
+    }
+}
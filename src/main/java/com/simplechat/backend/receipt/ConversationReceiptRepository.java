@@ -0,0 +1,29 @@
+package com.simplechat.backend.receipt;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ConversationReceiptRepository extends JpaRepository<ConversationReceipt, Long> {
+
+    Optional<ConversationReceipt> findByReaderIdAndSenderId(Long readerId, Long senderId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ConversationReceipt r SET " +
+            "r.deliveredUpTo = greatest(r.deliveredUpTo, :deliveredUpTo), " +
+            "r.readUpTo = greatest(r.readUpTo, :readUpTo) " +
+            "WHERE r.readerId = :readerId AND r.senderId = :senderId")
+    int advance(
+            @Param("readerId") Long readerId,
+            @Param("senderId") Long senderId,
+            @Param("deliveredUpTo") Long deliveredUpTo,
+            @Param("readUpTo") Long readUpTo
+    );
+}
@@ -0,0 +1,20 @@
+package com.simplechat.backend.receipt;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Acknowledges every message from {@code senderId} up to and including {@code upToMessageId}.
+ * A range of ids collapses to its upper end, so clients send one ack per batch, not per message.
+ */
+public record ReceiptAckRequest(
+    @NotNull
+    Long senderId,
+
+    @NotNull
+    ReceiptType type,
+
+    Long fromMessageId,
+
+    @NotNull
+    Long upToMessageId
+) {}
@@ -0,0 +1,26 @@
+package com.simplechat.backend.receipt;
+
+import com.simplechat.backend.user.User;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/receipts")
+public class ReceiptController {
+
+    private final ReceiptService receiptService;
+
+    public ReceiptController(ReceiptService receiptService) {
+        this.receiptService = receiptService;
+    }
+
+    @GetMapping("/{friendId}")
+    public ResponseEntity<ReceiptEvent> getReceipt(@PathVariable Long friendId, Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(receiptService.getReceipt(friendId, currentUser.getId()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.simplechat.backend.receipt;
+
+public record ReceiptEvent(
+    Long readerId,
+    Long deliveredUpTo,
+    Long readUpTo
+) {
+    public static ReceiptEvent fromReceipt(ConversationReceipt receipt) {
+        return new ReceiptEvent(receipt.getReaderId(), receipt.getDeliveredUpTo(), receipt.getReadUpTo());
+    }
+}
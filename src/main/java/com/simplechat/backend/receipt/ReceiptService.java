@@ -0,0 +1,141 @@
+package com.simplechat.backend.receipt;
+
+import com.simplechat.backend.config.OutboundBackpressureInterceptor;
+import com.simplechat.backend.config.ReplicaRoutingDataSource;
+import com.simplechat.backend.friend.FriendService;
+import com.simplechat.backend.message.MessageRepository;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects delivered/read acks in memory and writes them as per-conversation high-water marks.
+ * Every flush issues one UPDATE and sends one receipt event per conversation that moved,
+ * however many messages or acks arrived in between.
+ */
+@Service
+public class ReceiptService {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ConversationReceiptRepository receiptRepository;
+    private final MessageRepository messageRepository;
+    private final FriendService friendService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<ConversationKey, PendingAck> pendingAcks = new ConcurrentHashMap<>();
+
+    public ReceiptService(
+            ConversationReceiptRepository receiptRepository,
+            MessageRepository messageRepository,
+            FriendService friendService,
+            SimpMessagingTemplate messagingTemplate
+    ) {
+        this.receiptRepository = receiptRepository;
+        this.messageRepository = messageRepository;
+        this.friendService = friendService;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public void acknowledge(User reader, ReceiptAckRequest request) {
+        if (request.fromMessageId() != null && request.fromMessageId() > request.upToMessageId()) {
+            throw new IllegalArgumentException("Invalid acknowledgement range");
+        }
+
+        UserDto sender = friendService.getCachedFriends(reader.getId()).get(request.senderId());
+        if (sender == null) {
+            throw new IllegalArgumentException("You can only acknowledge messages from friends");
+        }
+
+        long upTo = request.upToMessageId();
+        // Marks never move back, so an id beyond the conversation would stick for good. Clients ack ids they
+        // received, and the message was just committed, so the check must not go to a lagging replica.
+        if (!ReplicaRoutingDataSource.onPrimary(
+                () -> messageRepository.existsByIdAndSenderIdAndRecipientId(upTo, sender.id(), reader.getId()))) {
+            throw new IllegalArgumentException("You can only acknowledge messages sent to you");
+        }
+        // A message that has been read has necessarily been delivered.
+        long readUpTo = request.type() == ReceiptType.READ ? upTo : 0L;
+
+        pendingAcks.merge(
+                new ConversationKey(reader.getId(), sender.id()),
+                new PendingAck(sender.username(), upTo, readUpTo),
+                PendingAck::max
+        );
+    }
+
+    /**
+     * Returns how far {@code readerId} has received and read the messages {@code senderId} sent them.
+     */
+    public ReceiptEvent getReceipt(Long readerId, Long senderId) {
+        return receiptRepository.findByReaderIdAndSenderId(readerId, senderId)
+                .map(ReceiptEvent::fromReceipt)
+                .orElse(new ReceiptEvent(readerId, 0L, 0L));
+    }
+
+    @Scheduled(fixedDelayString = "${app.receipts.flush-interval-ms:500}")
+    public void flush() {
+        for (ConversationKey key : pendingAcks.keySet()) {
+            PendingAck ack = pendingAcks.get(key);
+            if (ack == null) {
+                continue;
+            }
+
+            try {
+                store(key, ack);
+            } catch (RuntimeException e) {
+                // Keep the ack for the next flush.
+                log.warn("Could not store receipt of reader {} for sender {}", key.readerId(), key.senderId(), e);
+                continue;
+            }
+            // An ack merged in meanwhile stays for the next flush.
+            pendingAcks.remove(key, ack);
+            // Marks only move forward, so clients keep the maximum of what they have seen.
+            messagingTemplate.convertAndSend(
+                    "/user/" + ack.senderUsername() + "/queue/receipts",
+                    new ReceiptEvent(key.readerId(), ack.deliveredUpTo(), ack.readUpTo()),
+                    OutboundBackpressureInterceptor.coalescing("receipts:" + key.readerId())
+            );
+        }
+    }
+
+    private void store(ConversationKey key, PendingAck ack) {
+        if (receiptRepository.advance(key.readerId(), key.senderId(), ack.deliveredUpTo(), ack.readUpTo()) > 0) {
+            return;
+        }
+
+        ConversationReceipt receipt = new ConversationReceipt();
+        receipt.setReaderId(key.readerId());
+        receipt.setSenderId(key.senderId());
+        receipt.setDeliveredUpTo(ack.deliveredUpTo());
+        receipt.setReadUpTo(ack.readUpTo());
+
+        try {
+            receiptRepository.save(receipt);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the row first; advance it instead.
+            receiptRepository.advance(key.readerId(), key.senderId(), ack.deliveredUpTo(), ack.readUpTo());
+        }
+    }
+
+    private record ConversationKey(Long readerId, Long senderId) {}
+
+    private record PendingAck(String senderUsername, long deliveredUpTo, long readUpTo) {
+
+        PendingAck max(PendingAck other) {
+            return new PendingAck(
+                    senderUsername,
+                    Math.max(deliveredUpTo, other.deliveredUpTo),
+                    Math.max(readUpTo, other.readUpTo)
+            );
+        }
+    }
+}
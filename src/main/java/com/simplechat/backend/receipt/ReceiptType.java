@@ -0,0 +1,6 @@
+package com.simplechat.backend.receipt;
+
+public enum ReceiptType {
+    DELIVERED,
+    READ
+}
@@ -0,0 +1,107 @@
+package com.simplechat.backend.user;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Debounces typeahead searches per WebSocket session.
+ * Only the latest query of a session is answered; older ones are cancelled or dropped.
+ */
+@Service
+public class TypeaheadSearchService {
+
+    private final UserSearchIndex userSearchIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TaskScheduler taskScheduler;
+    private final long debounceMillis;
+
+    private final Map<String, PendingSearch> pendingBySession = new ConcurrentHashMap<>();
+
+    public TypeaheadSearchService(
+            UserSearchIndex userSearchIndex,
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("realtimeTaskScheduler") TaskScheduler taskScheduler,
+            @Value("${app.search.debounce-ms:150}") long debounceMillis
+    ) {
+        this.userSearchIndex = userSearchIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.taskScheduler = taskScheduler;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedules a search for the session, superseding whatever the session asked for before.
+     */
+    public void submit(String sessionId, User user, UserSearchRequest request) {
+        PendingSearch search = new PendingSearch(user.getId(), user.getUsername(), request);
+        PendingSearch previous = pendingBySession.put(sessionId, search);
+
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        search.future = taskScheduler.schedule(
+                () -> run(sessionId, search),
+                Instant.now().plusMillis(debounceMillis)
+        );
+    }
+
+    private void run(String sessionId, PendingSearch search) {
+        if (pendingBySession.get(sessionId) != search) {
+            return;
+        }
+
+        UserSearchRequest request = search.request;
+        UserSearchResult result = userSearchIndex.search(
+                request.query(), search.userId, UserSearchIndex.DEFAULT_LIMIT, request.cursor());
+
+        // A newer query may have arrived while this one was running; its answer wins.
+        if (!pendingBySession.remove(sessionId, search)) {
+            return;
+        }
+
+        messagingTemplate.convertAndSend(
+                "/user/" + search.username + "/queue/search",
+                new UserSearchResponse(request.requestId(), result.users(), result.nextCursor())
+        );
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        PendingSearch search = pendingBySession.remove(event.getSessionId());
+        if (search != null) {
+            search.cancel();
+        }
+    }
+
+    private static final class PendingSearch {
+
+        private final Long userId;
+        private final String username;
+        private final UserSearchRequest request;
+        private volatile ScheduledFuture<?> future;
+
+        private PendingSearch(Long userId, String username, UserSearchRequest request) {
+            this.userId = userId;
+            this.username = username;
+            this.request = request;
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
@@ -8,16 +8,17 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
-    private final UserRepository userRepository;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-    public UserController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    private final UserSearchIndex userSearchIndex;
+
+    public UserController(UserSearchIndex userSearchIndex) {
+        this.userSearchIndex = userSearchIndex;
     }
 
     @GetMapping("/me")
@@ -29,11 +30,20 @@ public class UserController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<UserDto>> searchUsers(@RequestParam("query") String query, Authentication authentication) {
+    public ResponseEntity<List<UserDto>> searchUsers(
+            @RequestParam("query") String query,
+            @RequestParam(defaultValue = "" + UserSearchIndex.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication
+    ) {
         User currentUser = (User) authentication.getPrincipal();
-        List<User> users = userRepository.findByUsernameContainingIgnoreCaseAndIdNot(query, currentUser.getId());
-        List<UserDto> userDtos = users.stream().map(UserDto::fromUser).collect(Collectors.toList());
+        UserSearchResult result = userSearchIndex.search(query, currentUser.getId(), limit, cursor);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.nextCursor());
+        }
 
-        return ResponseEntity.ok(userDtos);
+        return response.body(result.users());
     }
 }
\ No newline at end of file
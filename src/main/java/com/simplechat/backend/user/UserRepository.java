@@ -1,7 +1,11 @@
 package com.simplechat.backend.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,5 +15,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
-    List<User> findByUsernameContainingIgnoreCaseAndIdNot(String username, Long id);
+
+    @Query("SELECT new com.simplechat.backend.user.UserDto(u.id, u.username) FROM User u")
+    List<UserDto> findAllUserDtos();
+
+    /**
+     * Swaps in a new password hash unless the password was changed in the meantime.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
@@ -0,0 +1,190 @@
+package com.simplechat.backend.user;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory username index used by user search.
+ * Prefix matches come from a sorted map range scan, substring matches from a trigram index,
+ * so no search ever scans the app_user table.
+ */
+@Component
+public class UserSearchIndex {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 50;
+
+    private static final int TIER_PREFIX = 0;
+    private static final int TIER_SUBSTRING = 1;
+
+    private final UserRepository userRepository;
+
+    // Keyed by "lowercase username \0 username" so case variants of a name stay distinct and ordered.
+    private final ConcurrentSkipListMap<String, UserDto> usersByKey = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> keysByTrigram = new ConcurrentHashMap<>();
+
+    public UserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Loads every user into the index once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        usersByKey.clear();
+        keysByTrigram.clear();
+        userRepository.findAllUserDtos().forEach(this::add);
+    }
+
+    /**
+     * Adds a user to the index. Called on registration so new users are searchable right away.
+     */
+    public void add(UserDto user) {
+        String lowerName = normalize(user.username());
+        String key = lowerName + '\0' + user.username();
+
+        usersByKey.put(key, user);
+        for (String trigram : trigrams(lowerName)) {
+            keysByTrigram.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} users whose name contains the query, prefix matches first.
+     * The returned cursor continues the same ranking on the next call.
+     */
+    public UserSearchResult search(String query, Long excludeId, int limit, String cursor) {
+        String q = normalize(query);
+        int pageSize = Math.min(Math.max(limit, 1), MAX_LIMIT);
+
+        if (q.isEmpty()) {
+            return new UserSearchResult(List.of(), null);
+        }
+
+        Cursor start = Cursor.decode(cursor);
+        List<UserDto> page = new ArrayList<>(pageSize);
+        String lastKey = null;
+        int lastTier = TIER_PREFIX;
+
+        if (start.tier() == TIER_PREFIX) {
+            NavigableMap<String, UserDto> prefixMatches = usersByKey.subMap(q, true, q + Character.MAX_VALUE, false);
+            if (start.afterKey() != null) {
+                prefixMatches = prefixMatches.tailMap(start.afterKey(), false);
+            }
+
+            for (Map.Entry<String, UserDto> entry : prefixMatches.entrySet()) {
+                if (entry.getValue().id().equals(excludeId)) {
+                    continue;
+                }
+                if (page.size() == pageSize) {
+                    return new UserSearchResult(page, new Cursor(TIER_PREFIX, lastKey).encode());
+                }
+                page.add(entry.getValue());
+                lastKey = entry.getKey();
+            }
+        }
+
+        NavigableMap<String, UserDto> substringMatches = substringMatches(q);
+        if (start.tier() == TIER_SUBSTRING && start.afterKey() != null) {
+            substringMatches = substringMatches.tailMap(start.afterKey(), false);
+        }
+
+        for (Map.Entry<String, UserDto> entry : substringMatches.entrySet()) {
+            if (entry.getValue().id().equals(excludeId)) {
+                continue;
+            }
+            if (page.size() == pageSize) {
+                return new UserSearchResult(page, new Cursor(lastTier, lastKey).encode());
+            }
+            page.add(entry.getValue());
+            lastKey = entry.getKey();
+            lastTier = TIER_SUBSTRING;
+        }
+
+        return new UserSearchResult(page, null);
+    }
+
+    /**
+     * Names containing the query but not starting with it. Queries shorter than a trigram only get prefix matches.
+     */
+    private NavigableMap<String, UserDto> substringMatches(String q) {
+        NavigableMap<String, UserDto> matches = new TreeMap<>();
+        List<String> queryTrigrams = trigrams(q);
+
+        if (queryTrigrams.isEmpty()) {
+            return matches;
+        }
+
+        Collection<String> candidates = null;
+        for (String trigram : queryTrigrams) {
+            Set<String> keys = keysByTrigram.get(trigram);
+            if (keys == null) {
+                return matches;
+            }
+            if (candidates == null || keys.size() < candidates.size()) {
+                candidates = keys;
+            }
+        }
+
+        for (String key : candidates) {
+            String lowerName = key.substring(0, key.indexOf('\0'));
+            if (!lowerName.startsWith(q) && lowerName.contains(q)) {
+                UserDto user = usersByKey.get(key);
+                if (user != null) {
+                    matches.put(key, user);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static List<String> trigrams(String value) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            result.add(value.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Cursor(int tier, String afterKey) {
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return new Cursor(TIER_PREFIX, null);
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                return new Cursor(Integer.parseInt(decoded.substring(0, separator)), decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((tier + ":" + afterKey).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
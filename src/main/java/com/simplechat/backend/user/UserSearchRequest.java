@@ -0,0 +1,12 @@
+package com.simplechat.backend.user;
+
+import jakarta.validation.constraints.Size;
+
+public record UserSearchRequest(
+    Long requestId,
+
+    @Size(max = 20, message = "Search query is too long")
+    String query,
+
+    String cursor
+) {}
@@ -0,0 +1,9 @@
+package com.simplechat.backend.user;
+
+import java.util.List;
+
+public record UserSearchResponse(
+    Long requestId,
+    List<UserDto> users,
+    String nextCursor
+) {}
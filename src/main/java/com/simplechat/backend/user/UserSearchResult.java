@@ -0,0 +1,8 @@
+package com.simplechat.backend.user;
+
+import java.util.List;
+
+public record UserSearchResult(
+    List<UserDto> users,
+    String nextCursor
+) {}
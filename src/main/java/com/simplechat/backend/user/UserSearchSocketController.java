@@ -0,0 +1,24 @@
+package com.simplechat.backend.user;
+
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import jakarta.validation.Valid;
+
+@Controller
+public class UserSearchSocketController {
+
+    private final TypeaheadSearchService typeaheadSearchService;
+
+    public UserSearchSocketController(TypeaheadSearchService typeaheadSearchService) {
+        this.typeaheadSearchService = typeaheadSearchService;
+    }
+
+    @MessageMapping("/users.search")
+    public void searchUsers(@Payload @Valid UserSearchRequest request, SimpMessageHeaderAccessor headerAccessor, Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        typeaheadSearchService.submit(headerAccessor.getSessionId(), currentUser, request);
+    }
+}
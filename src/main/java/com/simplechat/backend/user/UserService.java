@@ -1,7 +1,11 @@
 package com.simplechat.backend.user;
 
+import com.simplechat.backend.auth.SessionTokenService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.util.Optional;
 import java.util.UUID;
 import java.time.LocalDateTime;
@@ -11,12 +15,22 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    private final UserSearchIndex userSearchIndex;
+    private final SessionTokenService sessionTokenService;
+
+    public UserService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            UserSearchIndex userSearchIndex,
+            SessionTokenService sessionTokenService
+    ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userSearchIndex = userSearchIndex;
+        this.sessionTokenService = sessionTokenService;
     }
 
+    @Transactional
     public User registerUser(RegistrationRequest request) {
         if (userRepository.findByUsername(request.username()).isPresent()) {
             throw new IllegalStateException("Username already taken");
@@ -37,9 +51,19 @@ public class UserService {
         newUser.setVerificationCode(code);
         newUser.setEnabled(false);
 
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+        UserDto indexed = UserDto.fromUser(savedUser);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userSearchIndex.add(indexed);
+            }
+        });
+
+        return savedUser;
     }
 
+    @Transactional
     public boolean verifyUser(String email, String code) {
         Optional<User> userOptional = userRepository.findByEmail(email);
 
@@ -57,10 +81,7 @@ public class UserService {
         return false;
     }
 
-    public boolean isUserEnabled(String username) {
-        return userRepository.findByUsername(username).map(User::isEnabled).orElse(false);
-    }
-
+    @Transactional
     public void requestPasswordReset(String email) {
         Optional<User> userOpt = userRepository.findByEmail(email);
 
@@ -77,10 +98,12 @@ public class UserService {
         }
     }
 
+    @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email).orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
+    @Transactional
     public void resetPassword(String email, String code, String newPassword) {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new IllegalArgumentException("Invalid email"));
 
@@ -96,5 +119,8 @@ public class UserService {
         user.setResetCode(null);
         user.setResetExpiry(null);
         userRepository.save(user);
+
+        // Whoever knew the old password must not stay logged in
+        sessionTokenService.endAllSessions(user.getId());
     }
 }
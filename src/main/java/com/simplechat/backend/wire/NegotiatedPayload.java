@@ -0,0 +1,25 @@
+package com.simplechat.backend.wire;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A payload with a full JSON view and a compact view, encoded per receiving session.
+ * It passes through the broker unserialized, and each format is encoded at most once however many sessions receive it.
+ */
+public final class NegotiatedPayload {
+
+    private final Object jsonBody;
+    private final Object compactBody;
+    private final Map<WireFormat, byte[]> encoded = new ConcurrentHashMap<>(2);
+
+    public NegotiatedPayload(Object jsonBody, Object compactBody) {
+        this.jsonBody = jsonBody;
+        this.compactBody = compactBody;
+    }
+
+    byte[] encode(WireFormat format, Function<Object, byte[]> encoder) {
+        return encoded.computeIfAbsent(format, f -> encoder.apply(f == WireFormat.JSON ? jsonBody : compactBody));
+    }
+}
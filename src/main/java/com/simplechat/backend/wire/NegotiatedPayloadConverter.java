@@ -0,0 +1,26 @@
+package com.simplechat.backend.wire;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Leaves {@link NegotiatedPayload} unserialized so {@link WireFormatInterceptor} can encode it per session.
+ * Must come before the Jackson converter, which would otherwise accept any object.
+ */
+public class NegotiatedPayloadConverter implements MessageConverter {
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass) {
+        return null;
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers) {
+        if (!(payload instanceof NegotiatedPayload)) {
+            return null;
+        }
+        return headers != null ? MessageBuilder.createMessage(payload, headers) : MessageBuilder.withPayload(payload).build();
+    }
+}
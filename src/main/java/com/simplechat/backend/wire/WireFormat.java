@@ -0,0 +1,30 @@
+package com.simplechat.backend.wire;
+
+/**
+ * Encodings a STOMP session can receive payloads in.
+ * A client asks for one with the {@value #ACCEPT_HEADER} header on CONNECT; JSON is the default.
+ */
+public enum WireFormat {
+
+    JSON("application/json"),
+    CBOR("application/cbor");
+
+    public static final String ACCEPT_HEADER = "accept-content-type";
+
+    private final String mimeType;
+
+    WireFormat(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public static WireFormat fromAcceptHeader(String value) {
+        if (value != null) {
+            for (String candidate : value.split(",")) {
+                if (CBOR.mimeType.equalsIgnoreCase(candidate.trim())) {
+                    return CBOR;
+                }
+            }
+        }
+        return JSON;
+    }
+}
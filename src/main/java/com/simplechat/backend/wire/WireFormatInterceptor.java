@@ -0,0 +1,88 @@
+package com.simplechat.backend.wire;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the wire format each STOMP session negotiated on CONNECT and encodes
+ * {@link NegotiatedPayload}s on the client outbound channel accordingly.
+ * CBOR frames go out as binary WebSocket frames, which STOMP only sends for {@code application/octet-stream}.
+ */
+@Component
+public class WireFormatInterceptor implements ChannelInterceptor {
+
+    private final ObjectMapper jsonMapper;
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final Map<String, WireFormat> formatBySession = new ConcurrentHashMap<>();
+
+    public WireFormatInterceptor(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    @EventListener
+    public void onSessionConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+
+        WireFormat format = WireFormat.fromAcceptHeader(accessor.getFirstNativeHeader(WireFormat.ACCEPT_HEADER));
+        if (format != WireFormat.JSON && attributes != null && attributes.containsKey(SockJsSessionMarker.ATTRIBUTE)) {
+            format = WireFormat.JSON;
+        }
+        if (format != WireFormat.JSON) {
+            formatBySession.put(accessor.getSessionId(), format);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        formatBySession.remove(event.getSessionId());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!(message.getPayload() instanceof NegotiatedPayload payload)) {
+            return message;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        WireFormat format = formatBySession.getOrDefault(accessor.getSessionId(), WireFormat.JSON);
+
+        if (format == WireFormat.CBOR) {
+            accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            return MessageBuilder.createMessage(payload.encode(format, this::toCbor), accessor.getMessageHeaders());
+        }
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(payload.encode(format, this::toJson), accessor.getMessageHeaders());
+    }
+
+    private byte[] toJson(Object body) {
+        try {
+            return jsonMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode payload as JSON", e);
+        }
+    }
+
+    private byte[] toCbor(Object body) {
+        try {
+            return cborMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode payload as CBOR", e);
+        }
+    }
+}
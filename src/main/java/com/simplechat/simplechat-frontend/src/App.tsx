@@ -4,7 +4,7 @@ import { useState, useEffect } from 'react';
 import AuthPage from './components/AuthPage';
 import ChatPage from './components/ChatPage'; 
 import './components/buttons/Buttons.css';
-import apiClient from './api';
+import apiClient, { SESSION_ENDED_EVENT, clearSession, storeSession } from './api';
 import { UserDto } from './types';
 
 function App() {
@@ -37,15 +37,29 @@ function App() {
   }, [token]);
 
 
-  const handleLogin = (newToken: string) => {
+  useEffect(() => {
+    const onSessionEnded = () => {
+      setToken(null);
+      setCurrentUser(null);
+    };
+
+    window.addEventListener(SESSION_ENDED_EVENT, onSessionEnded);
+    return () => window.removeEventListener(SESSION_ENDED_EVENT, onSessionEnded);
+  }, []);
+
+  const handleLogin = (newToken: string, refreshToken: string) => {
+    storeSession(newToken, refreshToken);
     setToken(newToken);
-    localStorage.setItem('token', newToken);
   };
 
   const handleLogout = () => {
+    if (localStorage.getItem('token')) {
+      // Revokes the session on the server; the local logout does not wait for it.
+      apiClient.post('/auth/logout').catch(() => {});
+    }
     setToken(null);
     setCurrentUser(null);
-    localStorage.removeItem('token');
+    clearSession();
   };
 
   if (loadingUser) {
@@ -1,4 +1,4 @@
-import axios from 'axios';
+import axios, { AxiosError, InternalAxiosRequestConfig } from 'axios';
 
 const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8081';
 const apiClient = axios.create({
@@ -8,13 +8,105 @@ const apiClient = axios.create({
     },
 });
 
+export const SESSION_ENDED_EVENT = 'auth:session-ended';
+
+export const storeSession = (token: string, refreshToken: string) => {
+    localStorage.setItem('token', token);
+    localStorage.setItem('refreshToken', refreshToken);
+};
+
+export const clearSession = () => {
+    localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
+};
+
+const expiresSoon = (token: string) => {
+    try {
+        const payload = JSON.parse(atob(token.split('.')[1].replace(/-/g, '+').replace(/_/g, '/')));
+        return payload.exp * 1000 - Date.now() < 30000;
+    } catch {
+        return true;
+    }
+};
+
+// Resolves with the access token another tab stores after replacing previousRefreshToken, or null on timeout.
+const awaitOtherTabRefresh = (previousRefreshToken: string | null, timeoutMs: number): Promise<string | null> =>
+    new Promise((resolve) => {
+        const stored = () => {
+            const latest = localStorage.getItem('refreshToken');
+            return latest && latest !== previousRefreshToken ? localStorage.getItem('token') : null;
+        };
+        const finish = (token: string | null) => {
+            window.removeEventListener('storage', onStorage);
+            window.clearTimeout(timer);
+            resolve(token);
+        };
+        const onStorage = () => {
+            const token = stored();
+            if (token) {
+                finish(token);
+            }
+        };
+        const timer = window.setTimeout(() => finish(stored()), timeoutMs);
+        window.addEventListener('storage', onStorage);
+        onStorage();
+    });
+
+let pendingRefresh: Promise<string> | null = null;
+
+// Refresh tokens rotate on every use, so concurrent callers share one refresh request.
+export const refreshAccessToken = (): Promise<string> => {
+    if (!pendingRefresh) {
+        const refreshToken = localStorage.getItem('refreshToken');
+
+        pendingRefresh = axios.post(`${API_URL}/api/auth/refresh`, { refreshToken })
+            .then((response) => {
+                storeSession(response.data.token, response.data.refreshToken);
+                return response.data.token as string;
+            })
+            .catch(async (error) => {
+                // 409: another tab refreshed with the same token a moment ago and is about to store the result.
+                if (axios.isAxiosError(error) && error.response?.status === 409) {
+                    const token = await awaitOtherTabRefresh(refreshToken, 5000);
+                    if (token) {
+                        return token;
+                    }
+                    throw error;
+                }
+                // Another tab may have rotated the token first; its result is in storage.
+                const latest = localStorage.getItem('refreshToken');
+                if (latest && latest !== refreshToken) {
+                    return localStorage.getItem('token') as string;
+                }
+                clearSession();
+                window.dispatchEvent(new Event(SESSION_ENDED_EVENT));
+                throw error;
+            })
+            .finally(() => {
+                pendingRefresh = null;
+            });
+    }
+    return pendingRefresh;
+};
+
+/**
+ * The stored access token, renewed first if it is about to expire. Used for the STOMP CONNECT frame.
+ */
+export const getFreshAccessToken = async (): Promise<string | null> => {
+    const token = localStorage.getItem('token');
+    if (token && expiresSoon(token) && localStorage.getItem('refreshToken')) {
+        return refreshAccessToken();
+    }
+    return token;
+};
+
 apiClient.interceptors.request.use(
     (config) => {
         const token = localStorage.getItem('token');
 
         if (token) {
             config.headers.Authorization = `Bearer ${token}`;
-        }    
+        }
 
         return config;
     },
@@ -24,4 +116,22 @@ apiClient.interceptors.request.use(
     }
 );
 
-export default apiClient;
\ No newline at end of file
+apiClient.interceptors.response.use(
+    (response) => response,
+
+    async (error: AxiosError) => {
+        const config = error.config as (InternalAxiosRequestConfig & { _retried?: boolean }) | undefined;
+
+        if (error.response?.status !== 401 || !config || config._retried
+                || config.url?.startsWith('/auth/') || !localStorage.getItem('refreshToken')) {
+            return Promise.reject(error);
+        }
+
+        config._retried = true;
+        const token = await refreshAccessToken();
+        config.headers.Authorization = `Bearer ${token}`;
+        return apiClient(config);
+    }
+);
+
+export default apiClient;
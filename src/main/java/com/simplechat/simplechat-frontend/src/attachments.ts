@@ -0,0 +1,59 @@
+import apiClient from './api';
+import { Attachment } from './types';
+
+interface UploadStatus {
+    attachment: Attachment;
+    uploadedBytes: number;
+    maxChunkSize: number;
+}
+
+/**
+ * Uploads a file in chunks for the given recipient. A chunk the server rejects because the upload moved on
+ * (409) is retried from wherever the server says it stands.
+ */
+export const uploadAttachment = async (file: File, recipientId: number): Promise<Attachment> => {
+    const created = await apiClient.post<UploadStatus>('/attachments', {
+        recipientId,
+        fileName: file.name,
+        contentType: file.type,
+        size: file.size,
+    });
+    let { uploadedBytes } = created.data;
+    const { attachment, maxChunkSize } = created.data;
+
+    while (uploadedBytes < file.size) {
+        const end = Math.min(uploadedBytes + maxChunkSize, file.size);
+        try {
+            const response = await apiClient.put<UploadStatus>(
+                `/attachments/${attachment.id}/content`,
+                file.slice(uploadedBytes, end),
+                {
+                    headers: {
+                        'Content-Type': 'application/octet-stream',
+                        'Content-Range': `bytes ${uploadedBytes}-${end - 1}/${file.size}`,
+                    },
+                },
+            );
+            uploadedBytes = response.data.uploadedBytes;
+        } catch (error: any) {
+            if (error.response?.status !== 409) {
+                throw error;
+            }
+            uploadedBytes = (await apiClient.get<UploadStatus>(`/attachments/${attachment.id}`)).data.uploadedBytes;
+        }
+    }
+    return attachment;
+};
+
+/**
+ * Downloads an attachment with the session's token and hands it to the browser as a file.
+ */
+export const downloadAttachment = async (attachment: Attachment) => {
+    const response = await apiClient.get(`/attachments/${attachment.id}/content`, { responseType: 'blob' });
+    const url = URL.createObjectURL(response.data);
+    const link = document.createElement('a');
+    link.href = url;
+    link.download = attachment.fileName;
+    link.click();
+    URL.revokeObjectURL(url);
+};
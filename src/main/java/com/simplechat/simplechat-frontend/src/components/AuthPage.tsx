@@ -4,7 +4,7 @@ import axios from 'axios';
 import PageAnimation from './page-animation/PageAnimation'; 
 
 interface AuthPageProps {
-    onLogin: (token: string) => void;
+    onLogin: (token: string, refreshToken: string) => void;
 }
 
 const AuthPage: React.FC<AuthPageProps> = ({ onLogin }) => {
@@ -50,7 +50,7 @@ const AuthPage: React.FC<AuthPageProps> = ({ onLogin }) => {
                     username,
                     password,
                 });
-                onLogin(response.data.token);
+                onLogin(response.data.token, response.data.refreshToken);
 
             } else if (view === 'REGISTER') {
                 await apiClient.post('/auth/register', {
@@ -1,10 +1,11 @@
 import React, { useState, useEffect, useRef, useLayoutEffect } from 'react';
-import apiClient from '../api';
-import { UserDto, Message } from '../types';
+import apiClient, { getFreshAccessToken, refreshAccessToken } from '../api';
+import { UserDto, Message, FriendRequest } from '../types';
 import { Client } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
 import FriendsModal from './friends-modal/FriendsModal';
 import { format } from 'date-fns';
+import { uploadAttachment, downloadAttachment } from '../attachments';
 
 interface ChatPageProps {
     token: string;
@@ -22,6 +23,7 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
     const [unreadCounts, setUnreadCounts] = useState<Record<number, number>>({});
     const [page, setPage] = useState(0);
     const [hasMore, setHasMore] = useState(true);
+    const [uploading, setUploading] = useState(false);
 
     const stompClientRef = useRef<Client | null>(null);
     const selectedFriendRef = useRef<UserDto | null>(null);
@@ -29,6 +31,7 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
     const messagesEndRef = useRef<HTMLDivElement>(null);
     const topSentinelRef = useRef<HTMLDivElement>(null);
     const messageContainerRef = useRef<HTMLDivElement>(null);
+    const fileInputRef = useRef<HTMLInputElement>(null);
     const isInitializing = useRef(false);
     const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8081';
 
@@ -50,34 +53,69 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
     }, []);
 
     useEffect(() => {
+        // Plain WebSocket first; fall back to SockJS if it never manages to connect (e.g. a proxy strips the upgrade).
+        let useSockJs = false;
+        let hasConnected = false;
+
+        const receiveMessage = (newMsg: Message) => {
+            const friend = selectedFriendRef.current;
+            const user = currentUserRef.current; 
+
+            const isOpenChat = 
+                (friend && newMsg.sender.id === friend.id && newMsg.recipient.id === user.id) ||
+                (friend && newMsg.sender.id === user.id && newMsg.recipient.id === friend.id);
+
+            if (isOpenChat) {
+                setMessages((prevMessages) => [...prevMessages, newMsg]);
+                setTimeout(scrollToBottom, 100);
+            } else {
+                if (newMsg.recipient.id === user.id) {
+                    setUnreadCounts((prev) => ({
+                        ...prev,
+                        [newMsg.sender.id]: (prev[newMsg.sender.id] || 0) + 1
+                    }));
+                }
+            }
+        };
+
         const client = new Client({
-            webSocketFactory: () => new SockJS(`${API_URL}/ws`),
-            connectHeaders: {
-                Authorization: `Bearer ${token}`,
+            webSocketFactory: () => useSockJs
+                ? new SockJS(`${API_URL}/ws`)
+                : new WebSocket(`${API_URL.replace(/^http/, 'ws')}/ws-native`),
+            // Reconnects can happen long after login, so each CONNECT carries a freshly renewed access token.
+            beforeConnect: async () => {
+                const accessToken = await getFreshAccessToken();
+                client.connectHeaders = {
+                    Authorization: `Bearer ${accessToken}`,
+                };
             },
             heartbeatOutgoing: 10000,
             heartbeatIncoming: 10000,
             onConnect: () => {
+                hasConnected = true;
+                // The server challenges the session shortly before its access token expires.
+                client.subscribe('/user/queue/session', async () => {
+                    const accessToken = await refreshAccessToken();
+                    client.publish({
+                        destination: '/app/session.refresh',
+                        headers: { Authorization: `Bearer ${accessToken}` },
+                    });
+                });
                 client.subscribe('/user/queue/private', (message) => {
-                    const newMsg = JSON.parse(message.body) as Message;
-                    const friend = selectedFriendRef.current;
-                    const user = currentUserRef.current; 
-
-                    const isOpenChat = 
-                        (friend && newMsg.sender.id === friend.id && newMsg.recipient.id === user.id) ||
-                        (friend && newMsg.sender.id === user.id && newMsg.recipient.id === friend.id);
-
-                    if (isOpenChat) {
-                        setMessages((prevMessages) => [...prevMessages, newMsg]);
-                        setTimeout(scrollToBottom, 100);
-                    } else {
-                        if (newMsg.recipient.id === user.id) {
-                            setUnreadCounts((prev) => ({
-                                ...prev,
-                                [newMsg.sender.id]: (prev[newMsg.sender.id] || 0) + 1
-                            }));
-                        }
+                    receiveMessage(JSON.parse(message.body) as Message);
+                });
+                // Friend requests are pushed as they are sent and answered; an accepted one adds the friend right away.
+                client.subscribe('/user/queue/friends', (message) => {
+                    const request = JSON.parse(message.body) as FriendRequest;
+                    if (request.status !== 'ACCEPTED') {
+                        return;
                     }
+                    const friend = request.sender.id === currentUserRef.current.id ? request.receiver : request.sender;
+                    setFriends((prev) => prev.some((f) => f.id === friend.id) ? prev : [...prev, friend]);
+                });
+                // Messages that arrived while this user had no open session, in one reply.
+                client.subscribe('/app/messages.pending', (message) => {
+                    (JSON.parse(message.body) as Message[]).forEach(receiveMessage);
                 });
             },
             onStompError: (frame) => {
@@ -86,6 +124,11 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
             },
             onWebSocketError: (event) => {
                 console.error('WebSocket Error', event);
+            },
+            onWebSocketClose: () => {
+                if (!hasConnected) {
+                    useSockJs = true;
+                }
             }
         });
 
@@ -203,6 +246,35 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
         }
     };
 
+    // The typed text, or else the file name, goes with the file as its caption.
+    const handleAttachFile = async (e: React.ChangeEvent<HTMLInputElement>) => {
+        const file = e.target.files?.[0];
+        e.target.value = '';
+        const client = stompClientRef.current;
+
+        if (!file || !selectedFriend || !client?.connected) {
+            return;
+        }
+
+        try {
+            setUploading(true);
+            const attachment = await uploadAttachment(file, selectedFriend.id);
+            client.publish({
+                destination: '/app/chat.send',
+                body: JSON.stringify({
+                    recipientId: selectedFriend.id,
+                    content: newMessage.trim() || file.name,
+                    attachmentId: attachment.id,
+                }),
+            });
+            setNewMessage('');
+        } catch (err) {
+            console.error(err);
+        } finally {
+            setUploading(false);
+        }
+    };
+
     const scrollToBottom = () => {
         messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
     };
@@ -258,6 +330,11 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
                                     className={`chat-window__message ${msg.sender.id === currentUser.id ? 'sent' : 'received'}`}
                                 >
                                     <div className="chat-window__message-content">
+                                        {msg.attachment && (
+                                            <button type="button" className="chat-window__message-attachment" onClick={() => downloadAttachment(msg.attachment!)}>
+                                                📎 {msg.attachment.fileName} ({Math.ceil(msg.attachment.size / 1024)} KB)
+                                            </button>
+                                        )}
                                         {msg.content}
                                     </div>
                                     <div className="chat-window__message-meta">
@@ -277,6 +354,10 @@ const ChatPage: React.FC<ChatPageProps> = ({ token, currentUser }) => {
                             value={newMessage}
                             onChange={(e) => setNewMessage(e.target.value)}
                         />
+                        <input type="file" ref={fileInputRef} onChange={handleAttachFile} hidden />
+                        <button className="message-form__button" type="button" disabled={uploading} onClick={() => fileInputRef.current?.click()}>
+                            {uploading ? 'Uploading...' : 'Attach'}
+                        </button>
                         <button className="message-form__button button--blue" type="submit">Send</button>
                     </form>
                 </>
@@ -9,6 +9,14 @@ export interface Message {
     timestamp: string;
     sender: UserDto;
     recipient: UserDto;
+    attachment?: Attachment;
+}
+
+export interface Attachment {
+    id: number;
+    fileName: string;
+    contentType: string;
+    size: number;
 }
 
 export interface FriendRequest {
@@ -0,0 +1,24 @@
+-- One friend_requests row per pair of users, whichever of them sent the request, so concurrent requests between
+-- the same two users cannot both insert. The pair is stored lower id first; version backs optimistic locking.
+ALTER TABLE friend_requests ADD COLUMN IF NOT EXISTS user_low_id BIGINT;
+ALTER TABLE friend_requests ADD COLUMN IF NOT EXISTS user_high_id BIGINT;
+ALTER TABLE friend_requests ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+UPDATE friend_requests
+SET user_low_id = LEAST(sender_id, receiver_id), user_high_id = GREATEST(sender_id, receiver_id);
+
+-- Pairs that raced into several rows keep one: a friendship over a pending request over a declined one, then the newest
+DELETE FROM friend_requests fr
+USING (
+    SELECT id, ROW_NUMBER() OVER (
+        PARTITION BY user_low_id, user_high_id
+        ORDER BY CASE status WHEN 'ACCEPTED' THEN 0 WHEN 'PENDING' THEN 1 ELSE 2 END, created_at DESC, id DESC
+    ) AS position
+    FROM friend_requests
+) ranked
+WHERE fr.id = ranked.id AND ranked.position > 1;
+
+ALTER TABLE friend_requests ALTER COLUMN user_low_id SET NOT NULL;
+ALTER TABLE friend_requests ALTER COLUMN user_high_id SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_friend_requests_pair ON friend_requests (user_low_id, user_high_id);
@@ -0,0 +1,7 @@
+-- Catch-all partition for messages outside every monthly partition, such as a timestamp beyond the months created
+-- ahead of time. Without it such an insert fails. MessagePartitionManager moves these rows into a monthly
+-- partition of their own on its next run.
+--
+-- V4 copied every existing message into the partitioned table and built its index in one transaction, without
+-- CONCURRENTLY, so the table was unavailable for the whole copy. On a large table, run V4 in a maintenance window.
+CREATE TABLE IF NOT EXISTS messages_default PARTITION OF messages DEFAULT;
@@ -0,0 +1,3 @@
+-- When the previous refresh token was replaced. Presenting it again shortly afterwards is another tab of the same
+-- client that read the token before the rotation, not a replay, so it must not end the session.
+ALTER TABLE refresh_sessions ADD COLUMN IF NOT EXISTS rotated_at TIMESTAMP(6) WITH TIME ZONE;
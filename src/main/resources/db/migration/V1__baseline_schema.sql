@@ -0,0 +1,38 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- IF NOT EXISTS lets existing databases adopt the migrations without changes.
+
+CREATE TABLE IF NOT EXISTS app_user (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username          VARCHAR(255) NOT NULL UNIQUE,
+    email             VARCHAR(255) NOT NULL UNIQUE,
+    password_hash     VARCHAR(255) NOT NULL,
+    verification_code VARCHAR(255),
+    enabled           BOOLEAN      NOT NULL,
+    reset_code        VARCHAR(255),
+    reset_expiry      TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    content      TEXT         NOT NULL,
+    timestamp    TIMESTAMP(6) NOT NULL,
+    sender_id    BIGINT       NOT NULL REFERENCES app_user (id),
+    recipient_id BIGINT       NOT NULL REFERENCES app_user (id)
+);
+
+CREATE TABLE IF NOT EXISTS friend_requests (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sender_id   BIGINT       NOT NULL REFERENCES app_user (id),
+    receiver_id BIGINT       NOT NULL REFERENCES app_user (id),
+    status      VARCHAR(255) NOT NULL CHECK (status IN ('PENDING', 'ACCEPTED', 'DECLINED', 'BLOCKED')),
+    created_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS conversation_receipts (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    reader_id       BIGINT NOT NULL,
+    sender_id       BIGINT NOT NULL,
+    delivered_up_to BIGINT NOT NULL,
+    read_up_to      BIGINT NOT NULL,
+    UNIQUE (reader_id, sender_id)
+);
@@ -0,0 +1,2 @@
+-- Encrypted, Base64-encoded content of a 1000 character message does not fit the old VARCHAR(255).
+ALTER TABLE messages ALTER COLUMN content TYPE TEXT;
@@ -0,0 +1,13 @@
+-- Indexes backing the repository query methods. Built CONCURRENTLY so large tables stay writable.
+
+-- MessageRepository: history between two users, newest first
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_sender_recipient_timestamp
+    ON messages (sender_id, recipient_id, timestamp DESC);
+
+-- FriendRequestRepository: findByReceiverIdAndStatus, findByReceiverId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_friend_requests_receiver_status
+    ON friend_requests (receiver_id, status);
+
+-- FriendRequestRepository: findBySenderIdAndReceiverId, findBySenderId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_friend_requests_sender_receiver
+    ON friend_requests (sender_id, receiver_id);
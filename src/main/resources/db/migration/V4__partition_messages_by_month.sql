@@ -0,0 +1,40 @@
+-- Rebuild messages as a table range-partitioned by month on timestamp.
+-- The partition key has to be part of the primary key; ids stay unique through the identity sequence.
+
+ALTER TABLE messages RENAME TO messages_unpartitioned;
+
+CREATE TABLE messages (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    content      TEXT         NOT NULL,
+    timestamp    TIMESTAMP(6) NOT NULL,
+    sender_id    BIGINT       NOT NULL REFERENCES app_user (id),
+    recipient_id BIGINT       NOT NULL REFERENCES app_user (id),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- One partition per month from the oldest message up to three months ahead.
+-- MessagePartitionManager keeps creating partitions ahead of time from here on.
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT min(timestamp) FROM messages_unpartitioned), now()))::date;
+    last_month  DATE := (date_trunc('month', now()) + INTERVAL '3 months')::date;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+            to_char(month_start, '"messages_y"YYYY"m"MM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::date
+        );
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO messages (id, content, timestamp, sender_id, recipient_id)
+SELECT id, content, timestamp, sender_id, recipient_id FROM messages_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('messages', 'id'), COALESCE((SELECT max(id) FROM messages), 0) + 1, false);
+
+DROP TABLE messages_unpartitioned;
+
+CREATE INDEX idx_messages_sender_recipient_timestamp ON messages (sender_id, recipient_id, timestamp DESC);
@@ -0,0 +1,23 @@
+-- Login sessions behind rotating refresh tokens. Only SHA-256 hashes of the tokens are stored.
+CREATE TABLE IF NOT EXISTS refresh_sessions (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id          VARCHAR(36)              NOT NULL UNIQUE,
+    user_id             BIGINT                   NOT NULL REFERENCES app_user (id) ON DELETE CASCADE,
+    token_hash          VARCHAR(64)              NOT NULL UNIQUE,
+    previous_token_hash VARCHAR(64),
+    expires_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+-- Refresh lookups match the current or the previous hash
+CREATE INDEX IF NOT EXISTS idx_refresh_sessions_previous_token_hash ON refresh_sessions (previous_token_hash);
+CREATE INDEX IF NOT EXISTS idx_refresh_sessions_user ON refresh_sessions (user_id);
+
+-- Logouts and password resets, polled by every node. Rows older than the access token lifetime are purged.
+CREATE TABLE IF NOT EXISTS token_revocations (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT                   NOT NULL,
+    session_id VARCHAR(36),
+    revoked_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_token_revocations_revoked_at ON token_revocations (revoked_at);
@@ -0,0 +1,11 @@
+-- Messages waiting for an offline recipient that no longer fit in a node's memory.
+-- message_id has no foreign key: messages is partitioned and its rows are eventually archived.
+CREATE TABLE IF NOT EXISTS pending_deliveries (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    recipient_id BIGINT                   NOT NULL REFERENCES app_user (id) ON DELETE CASCADE,
+    message_id   BIGINT                   NOT NULL,
+    queued_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_pending_deliveries_recipient ON pending_deliveries (recipient_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_pending_deliveries_queued_at ON pending_deliveries (queued_at);
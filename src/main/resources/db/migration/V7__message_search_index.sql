@@ -0,0 +1,17 @@
+-- Blind index over encrypted message content: one row per distinct word of a message and participant,
+-- holding a truncated HMAC of the participant id and the word. Lookups go token first, so the primary key serves them.
+CREATE TABLE IF NOT EXISTS message_search_tokens (
+    token      VARCHAR(22) NOT NULL,
+    message_id BIGINT      NOT NULL,
+    PRIMARY KEY (token, message_id)
+);
+
+-- Messages written before this migration are indexed in the background, newest first, down from this id.
+CREATE TABLE IF NOT EXISTS message_search_backfill (
+    id              SMALLINT PRIMARY KEY,
+    next_message_id BIGINT   NOT NULL
+);
+
+INSERT INTO message_search_backfill (id, next_message_id)
+SELECT 1, COALESCE(MAX(id), 0) FROM messages
+ON CONFLICT (id) DO NOTHING;
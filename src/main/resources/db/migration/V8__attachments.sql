@@ -0,0 +1,18 @@
+-- Files sent between users. Content is stored AES-CTR encrypted outside the database, uploaded in chunks;
+-- an attachment is complete once uploaded_bytes reaches size_bytes.
+CREATE TABLE IF NOT EXISTS attachments (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    uploader_id    BIGINT                   NOT NULL REFERENCES app_user (id) ON DELETE CASCADE,
+    recipient_id   BIGINT                   NOT NULL REFERENCES app_user (id) ON DELETE CASCADE,
+    file_name      VARCHAR(255)             NOT NULL,
+    content_type   VARCHAR(127)             NOT NULL,
+    size_bytes     BIGINT                   NOT NULL,
+    uploaded_bytes BIGINT                   NOT NULL DEFAULT 0,
+    iv             BYTEA                    NOT NULL,
+    created_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+-- The purge of abandoned uploads only looks at incomplete ones
+CREATE INDEX IF NOT EXISTS idx_attachments_incomplete ON attachments (created_at) WHERE uploaded_bytes < size_bytes;
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS attachment_id BIGINT REFERENCES attachments (id);
@@ -0,0 +1,12 @@
+-- Client-chosen ids of sent messages, so a resend after a reconnect is recognised instead of stored twice.
+-- A table of its own because a unique index on the partitioned messages table would have to include its timestamp.
+-- message_id is set in the transaction that claims the row; it has no foreign key for the same reason as pending_deliveries.
+CREATE TABLE IF NOT EXISTS message_client_ids (
+    sender_id         BIGINT                   NOT NULL REFERENCES app_user (id) ON DELETE CASCADE,
+    client_message_id VARCHAR(64)              NOT NULL,
+    message_id        BIGINT,
+    created_at        TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (sender_id, client_message_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_message_client_ids_created_at ON message_client_ids (created_at);
@@ -0,0 +1,123 @@
+package com.simplechat.backend.attachment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Counter-mode positioning of the attachment store: chunks written at any offset and ranges read from any offset
+ * must line up with one pass over the whole file, including offsets inside a cipher block and across the buffer.
+ */
+class AttachmentStoreTests {
+
+    // Chunk boundaries off the 16-byte block grid, one of them spanning more than a 64 KiB buffer.
+    private static final int[] CHUNK_ENDS = {1, 7, 16, 33, 70_001, 70_016, 131_075, 200_000};
+
+    @TempDir
+    private Path dir;
+
+    private final byte[] content = new byte[200_000];
+
+    private AttachmentStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(42).nextBytes(content);
+        store = new AttachmentStore(dir, "attachment-store-test-secret");
+    }
+
+    @Test
+    void chunksWrittenAtAnyOffsetMatchOneWholeWrite() throws Exception {
+        byte[] iv = store.newIv();
+        Attachment chunked = attachment(1L, iv);
+        Attachment whole = attachment(2L, iv);
+
+        writeInChunks(chunked);
+        store.write(whole, 0, content.length, new ByteArrayInputStream(content));
+
+        byte[] stored = Files.readAllBytes(dir.resolve("1.bin"));
+        assertThat(stored).isEqualTo(Files.readAllBytes(dir.resolve("2.bin")));
+        assertThat(stored).isNotEqualTo(content);
+    }
+
+    @Test
+    void anyRangeDecryptsToTheOriginalBytes() throws Exception {
+        Attachment attachment = attachment(1L, store.newIv());
+        writeInChunks(attachment);
+
+        long[][] ranges = {
+                {0, content.length}, {0, 1}, {5, 11}, {15, 2}, {16, 16}, {17, 65_536}, {65_535, 65_538},
+                {99_999, 3}, {content.length - 9, 9}, {123_457, content.length - 123_457}
+        };
+        for (long[] range : ranges) {
+            assertThat(read(attachment, range[0], range[1]))
+                    .as("bytes %d+%d", range[0], range[1])
+                    .isEqualTo(Arrays.copyOfRange(content, (int) range[0], (int) (range[0] + range[1])));
+        }
+    }
+
+    @Test
+    void counterWrapsAroundTheTopOfItsRange() throws Exception {
+        byte[] iv = new byte[16];
+        Arrays.fill(iv, (byte) 0xff);
+        Attachment chunked = attachment(1L, iv);
+        Attachment whole = attachment(2L, iv);
+
+        writeInChunks(chunked);
+        store.write(whole, 0, content.length, new ByteArrayInputStream(content));
+
+        assertThat(Files.readAllBytes(dir.resolve("1.bin"))).isEqualTo(Files.readAllBytes(dir.resolve("2.bin")));
+        assertThat(read(chunked, 21, 40)).isEqualTo(Arrays.copyOfRange(content, 21, 61));
+    }
+
+    @Test
+    void chunkLengthMustMatchItsRange() {
+        Attachment attachment = attachment(1L, store.newIv());
+
+        assertThatThrownBy(() -> store.write(attachment, 0, 10, new ByteArrayInputStream(new byte[9])))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.write(attachment, 0, 10, new ByteArrayInputStream(new byte[11])))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readingPastTheStoredContentFails() throws Exception {
+        Attachment attachment = attachment(1L, store.newIv());
+        store.write(attachment, 0, 100, new ByteArrayInputStream(content, 0, 100));
+
+        assertThatThrownBy(() -> read(attachment, 90, 20)).isInstanceOf(EOFException.class);
+    }
+
+    private void writeInChunks(Attachment attachment) throws Exception {
+        int start = 0;
+        for (int end : CHUNK_ENDS) {
+            store.write(attachment, start, end - start, new ByteArrayInputStream(content, start, end - start));
+            start = end;
+        }
+    }
+
+    private byte[] read(Attachment attachment, long start, long length) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.read(attachment, start, length, out);
+        return out.toByteArray();
+    }
+
+    private static Attachment attachment(Long id, byte[] iv) {
+        Attachment attachment = new Attachment();
+        ReflectionTestUtils.setField(attachment, "id", id);
+        attachment.setIv(iv);
+        return attachment;
+    }
+}
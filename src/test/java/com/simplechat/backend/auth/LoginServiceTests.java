@@ -0,0 +1,90 @@
+package com.simplechat.backend.auth;
+
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Login outcomes, and which pool does what: BCrypt on the hashing pool, the session insert after it elsewhere.
+ */
+@SpringBootTest
+class LoginServiceTests {
+
+    @Autowired
+    private LoginService loginService;
+
+    @MockitoSpyBean
+    private SessionTokenService sessionTokenService;
+
+    @Autowired
+    private RefreshSessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = createUser("login-user", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void sessionStartsOffTheHashingPool() throws Exception {
+        AtomicReference<String> sessionThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            sessionThread.set(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(sessionTokenService).startSession(any());
+
+        LoginResult result = loginService.login("login-user", "secret").get(30, TimeUnit.SECONDS);
+
+        assertThat(result.outcome()).isEqualTo(LoginResult.Outcome.SUCCESS);
+        assertThat(result.tokens()).isNotNull();
+        assertThat(sessionThread.get()).startsWith("app-task-");
+    }
+
+    @Test
+    void failedChecksStartNoSession() throws Exception {
+        createUser("unverified-user", false);
+
+        assertThat(loginService.login("login-user", "wrong").get(30, TimeUnit.SECONDS).outcome())
+                .isEqualTo(LoginResult.Outcome.INVALID_CREDENTIALS);
+        assertThat(loginService.login("nobody", "secret").get(30, TimeUnit.SECONDS).outcome())
+                .isEqualTo(LoginResult.Outcome.INVALID_CREDENTIALS);
+        assertThat(loginService.login("unverified-user", "secret").get(30, TimeUnit.SECONDS).outcome())
+                .isEqualTo(LoginResult.Outcome.NOT_VERIFIED);
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    private User createUser(String username, boolean enabled) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash(passwordEncoder.encode("secret"));
+        user.setEnabled(enabled);
+        return userRepository.save(user);
+    }
+}
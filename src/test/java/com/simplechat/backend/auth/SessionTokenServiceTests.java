@@ -0,0 +1,210 @@
+package com.simplechat.backend.auth;
+
+import com.simplechat.backend.jwt.AccessToken;
+import com.simplechat.backend.jwt.JwtService;
+import com.simplechat.backend.jwt.TokenRevocation;
+import com.simplechat.backend.jwt.TokenRevocationList;
+import com.simplechat.backend.jwt.TokenRevocationRepository;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Refresh token rotation, replay detection and logout. A refresh token works exactly once; presenting it a second
+ * time, whether replayed later or raced concurrently, must never hand out a second session. A race between tabs
+ * of one client must not end the session either.
+ */
+@SpringBootTest
+class SessionTokenServiceTests {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private RefreshSessionRepository sessionRepository;
+
+    @Autowired
+    private TokenRevocationRepository revocationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = createUser("session-user");
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+        revocationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void refreshReplacesTheRefreshTokenAndKeepsTheSession() {
+        AuthTokens first = sessionTokenService.startSession(user);
+
+        AuthTokens second = sessionTokenService.refresh(first.refreshToken());
+        AuthTokens third = sessionTokenService.refresh(second.refreshToken());
+
+        assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+        assertThat(third.refreshToken()).isNotEqualTo(second.refreshToken());
+        assertThat(parse(third).sessionId()).isEqualTo(parse(first).sessionId());
+        assertThat(revocationList.isRevoked(parse(third))).isFalse();
+    }
+
+    @Test
+    void replayingAReplacedRefreshTokenEndsTheSession() {
+        AuthTokens first = sessionTokenService.startSession(user);
+        AuthTokens second = sessionTokenService.refresh(first.refreshToken());
+        rotatedAgo(Duration.ofMinutes(5));
+
+        assertThatThrownBy(() -> sessionTokenService.refresh(first.refreshToken()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // The legitimate client is logged out too: the replay shows the token was copied.
+        assertThatThrownBy(() -> sessionTokenService.refresh(second.refreshToken()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(revocationList.isRevoked(parse(second))).isTrue();
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    void anotherTabRefreshingWithTheReplacedTokenKeepsTheSession() {
+        AuthTokens first = sessionTokenService.startSession(user);
+        AuthTokens rotated = sessionTokenService.refresh(first.refreshToken());
+
+        // The second tab read the same refresh token before the first tab's refresh landed.
+        assertThatThrownBy(() -> sessionTokenService.refresh(first.refreshToken()))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(revocationList.isRevoked(parse(rotated))).isFalse();
+        assertThat(sessionTokenService.refresh(rotated.refreshToken())).isNotNull();
+    }
+
+    @Test
+    void logoutRevokesOnlyThatSession() {
+        AuthTokens loggedOut = sessionTokenService.startSession(user);
+        AuthTokens other = sessionTokenService.startSession(user);
+
+        sessionTokenService.endSession(parse(loggedOut));
+
+        assertThat(revocationList.isRevoked(parse(loggedOut))).isTrue();
+        assertThatThrownBy(() -> sessionTokenService.refresh(loggedOut.refreshToken()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(revocationList.isRevoked(parse(other))).isFalse();
+        assertThat(sessionTokenService.refresh(other.refreshToken())).isNotNull();
+    }
+
+    @Test
+    void endingAllSessionsRevokesTokensIssuedUpToTheSameSecond() {
+        AuthTokens before = sessionTokenService.startSession(user);
+
+        sessionTokenService.endAllSessions(user.getId());
+
+        assertThat(revocationList.isRevoked(parse(before))).isTrue();
+        assertThatThrownBy(() -> sessionTokenService.refresh(before.refreshToken()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Issue times have second precision, so a token from the second of the reset cannot be told apart
+        // from one issued just before it and is revoked; one from the next second is not.
+        Instant notBefore = revocationRepository.findAll().stream()
+                .filter(revocation -> revocation.getSessionId() == null && revocation.getUserId().equals(user.getId()))
+                .map(TokenRevocation::getRevokedAt)
+                .findFirst().orElseThrow()
+                .truncatedTo(ChronoUnit.SECONDS);
+        assertThat(revocationList.isRevoked(tokenIssuedAt(notBefore))).isTrue();
+        assertThat(revocationList.isRevoked(tokenIssuedAt(notBefore.plusSeconds(1)))).isFalse();
+    }
+
+    @Test
+    void concurrentRefreshesOfOneTokenSucceedOnceAndKeepTheSession() throws Exception {
+        AuthTokens tokens = sessionTokenService.startSession(user);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<AuthTokens>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return sessionTokenService.refresh(tokens.refreshToken());
+                }));
+            }
+            start.countDown();
+
+            List<AuthTokens> succeeded = new ArrayList<>();
+            for (Future<AuthTokens> future : futures) {
+                try {
+                    succeeded.add(future.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+                } catch (TimeoutException e) {
+                    throw new AssertionError("Refresh did not finish", e);
+                }
+            }
+            assertThat(succeeded).hasSize(1);
+            assertThat(revocationList.isRevoked(parse(succeeded.get(0)))).isFalse();
+            assertThat(sessionTokenService.refresh(succeeded.get(0).refreshToken())).isNotNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void rotatedAgo(Duration age) {
+        jdbcTemplate.update("UPDATE refresh_sessions SET rotated_at = ?", Timestamp.from(Instant.now().minus(age)));
+    }
+
+    private AccessToken parse(AuthTokens tokens) {
+        return jwtService.parseToken(tokens.accessToken());
+    }
+
+    private AccessToken tokenIssuedAt(Instant issuedAt) {
+        return new AccessToken(user.getId(), user.getUsername(), "not-revoked-session", issuedAt, issuedAt.plusSeconds(60));
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,116 @@
+package com.simplechat.backend.config;
+
+import com.simplechat.backend.attachment.AttachmentDto;
+import com.simplechat.backend.attachment.AttachmentUploadStatus;
+import com.simplechat.backend.auth.LoginResponse;
+import com.simplechat.backend.chat.TypingEvent;
+import com.simplechat.backend.friend.FriendRequestChangedEvent;
+import com.simplechat.backend.friend.FriendRequestDto;
+import com.simplechat.backend.message.CompactMessageDto;
+import com.simplechat.backend.message.MessageDto;
+import com.simplechat.backend.presence.PresenceEvent;
+import com.simplechat.backend.receipt.ReceiptEvent;
+import com.simplechat.backend.user.UserDto;
+import com.simplechat.backend.user.UserSearchResponse;
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.annotation.ReflectiveRuntimeHintsRegistrar;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the native image hints without building one. Entities and JPQL constructor results are found by scanning,
+ * so a new one without a hint fails here; pushed payloads are listed, since nothing marks a type as one.
+ */
+class NativeHintsConfigTests {
+
+    private static final String BASE_PACKAGE = "com.simplechat.backend";
+    private static final Pattern CONSTRUCTOR_EXPRESSION = Pattern.compile("SELECT new ([\\w.]+)\\(");
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @BeforeEach
+    void registerHints() {
+        new NativeHintsConfig.AppRuntimeHints().registerHints(hints, getClass().getClassLoader());
+        new ReflectiveRuntimeHintsRegistrar().registerRuntimeHints(hints, NativeHintsConfig.class);
+    }
+
+    @Test
+    void everyEntityAndIdClassIsRegistered() {
+        List<Class<?>> entities = scan(new AnnotationTypeFilter(Entity.class));
+        assertThat(entities).isNotEmpty();
+
+        for (Class<?> entity : entities) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(entity).withMemberCategory(MemberCategory.DECLARED_FIELDS))
+                    .as(entity.getName()).accepts(hints);
+            IdClass idClass = entity.getAnnotation(IdClass.class);
+            if (idClass != null) {
+                assertThat(RuntimeHintsPredicates.reflection().onType(idClass.value()))
+                        .as(idClass.value().getName()).accepts(hints);
+            }
+        }
+    }
+
+    @Test
+    void everyJpqlConstructorResultIsRegistered() {
+        List<Class<?>> results = scan(new AssignableTypeFilter(Repository.class)).stream()
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .filter(method -> method.isAnnotationPresent(Query.class))
+                .flatMap(method -> CONSTRUCTOR_EXPRESSION.matcher(method.getAnnotation(Query.class).value()).results())
+                .<Class<?>>map(match -> load(match.group(1)))
+                .distinct()
+                .toList();
+        assertThat(results).isNotEmpty();
+
+        for (Class<?> result : results) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(result).withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS))
+                    .as(result.getName()).accepts(hints);
+        }
+    }
+
+    @Test
+    void pushedPayloadsAreRegisteredForBinding() {
+        for (Class<?> payload : List.of(MessageDto.class, CompactMessageDto.class, AttachmentDto.class,
+                AttachmentUploadStatus.class, PresenceEvent.class, TypingEvent.class, ReceiptEvent.class,
+                UserSearchResponse.class, FriendRequestDto.class, FriendRequestChangedEvent.class, LoginResponse.class,
+                // Reached only through the payloads above.
+                UserDto.class)) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(payload)).as(payload.getName()).accepts(hints);
+        }
+    }
+
+    private static List<Class<?>> scan(TypeFilter filter) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                // Repositories are interfaces.
+                return true;
+            }
+        };
+        scanner.addIncludeFilter(filter);
+        return scanner.findCandidateComponents(BASE_PACKAGE).stream()
+                .<Class<?>>map(definition -> load(definition.getBeanClassName()))
+                .toList();
+    }
+
+    private static Class<?> load(String className) {
+        return ClassUtils.resolveClassName(className, NativeHintsConfigTests.class.getClassLoader());
+    }
+}
@@ -0,0 +1,188 @@
+package com.simplechat.backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives each shedding tier with frames as they reach the client outbound channel: sent by the application to
+ * {@code /user/...}, resolved by {@link UserDestinationMessageHandler} and fanned out by the simple broker.
+ */
+class OutboundBackpressureInterceptorTests {
+
+    private static final String USERNAME = "bob";
+    private static final String SESSION_ID = "s1";
+    private static final long DROP_BYTES = 100;
+    private static final long COALESCE_BYTES = 200;
+    private static final long DISCONNECT_BYTES = 1000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+    private final List<Message<?>> outbound = new ArrayList<>();
+
+    private OutboundBackpressureInterceptor interceptor;
+    private ExecutorSubscribableChannel brokerChannel;
+    private UserDestinationMessageHandler userDestinationHandler;
+    private SimpleBrokerMessageHandler broker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        interceptor = new OutboundBackpressureInterceptor(taskScheduler, meterRegistry,
+                DROP_BYTES, COALESCE_BYTES, DISCONNECT_BYTES,
+                Set.of("/user/queue/typing", "/user/queue/presence", "/user/queue/search"));
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(SESSION_ID);
+        interceptor.decorate(mock(WebSocketHandler.class)).afterConnectionEstablished(session);
+
+        SimpSession simpSession = mock(SimpSession.class);
+        when(simpSession.getId()).thenReturn(SESSION_ID);
+        SimpUser user = mock(SimpUser.class);
+        when(user.getName()).thenReturn(USERNAME);
+        when(user.getSessions()).thenReturn(Set.of(simpSession));
+        SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+        when(userRegistry.getUser(USERNAME)).thenReturn(user);
+
+        ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+        clientOutboundChannel.subscribe(outbound::add);
+        brokerChannel = new ExecutorSubscribableChannel();
+
+        userDestinationHandler = new UserDestinationMessageHandler(
+                clientInboundChannel, brokerChannel, new DefaultUserDestinationResolver(userRegistry));
+        broker = new SimpleBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel, List.of("/queue"));
+        userDestinationHandler.start();
+        broker.start();
+
+        // The broker only delivers to sessions it saw connect.
+        send(clientInboundChannel, SimpMessageType.CONNECT, null);
+        for (String destination : List.of("/user/queue/private", "/user/queue/typing", "/user/queue/receipts")) {
+            send(clientInboundChannel, SimpMessageType.SUBSCRIBE, destination);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+        userDestinationHandler.stop();
+    }
+
+    @Test
+    void ephemeralFramesPassUntilTheDropThreshold() {
+        assertThat(interceptor.preSend(deliver("/queue/typing", 10, null), brokerChannel)).isNotNull();
+
+        fillBacklog(DROP_BYTES);
+
+        assertThat(interceptor.preSend(deliver("/queue/typing", 10, null), brokerChannel)).isNull();
+        assertThat(shed("drop")).isEqualTo(1);
+    }
+
+    @Test
+    void coalescedFramesAreHeldAndOnlyTheLatestIsSentOnceTheBacklogDrains() {
+        Message<?> backlog = fillBacklog(COALESCE_BYTES);
+
+        Message<?> first = deliver("/queue/receipts", 10, OutboundBackpressureInterceptor.coalescing("receipts:1"));
+        Message<?> latest = deliver("/queue/receipts", 20, OutboundBackpressureInterceptor.coalescing("receipts:1"));
+        assertThat(interceptor.preSend(first, brokerChannel)).isNull();
+        assertThat(interceptor.preSend(latest, brokerChannel)).isNull();
+        assertThat(shed("coalesce")).isEqualTo(2);
+
+        MessageChannel channel = mock(MessageChannel.class);
+        interceptor.afterMessageHandled(backlog, channel, mock(MessageHandler.class), null);
+
+        verify(channel, times(1)).send(any());
+        verify(channel).send(argThat(message -> message == latest));
+    }
+
+    @Test
+    void chatMessagesAreKeptPastTheDropAndCoalesceThresholds() {
+        fillBacklog(COALESCE_BYTES);
+
+        Message<?> chat = deliver("/queue/private", 10, null);
+        assertThat(interceptor.preSend(chat, brokerChannel)).isSameAs(chat);
+        assertThat(shed("drop") + shed("coalesce")).isZero();
+    }
+
+    @Test
+    void sessionIsClosedPastTheDisconnectThreshold() {
+        fillBacklog(DISCONNECT_BYTES);
+
+        assertThat(interceptor.preSend(deliver("/queue/private", 10, null), brokerChannel)).isNull();
+        assertThat(shed("disconnect")).isEqualTo(1);
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    /**
+     * Queues a chat message of {@code bytes} bytes for the session, as if it were still waiting to be written.
+     */
+    private Message<?> fillBacklog(long bytes) {
+        Message<?> message = deliver("/queue/private", (int) bytes, null);
+        assertThat(interceptor.preSend(message, brokerChannel)).isSameAs(message);
+        return message;
+    }
+
+    /**
+     * Sends a payload the way {@code SimpMessagingTemplate.convertAndSend("/user/bob" + queue)} does and returns
+     * the frame the broker puts on the client outbound channel.
+     */
+    private Message<?> deliver(String queue, int bytes, MessageHeaders headers) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (headers != null) {
+            accessor.copyHeaders(headers);
+        }
+        accessor.setDestination("/user/" + USERNAME + queue);
+        int before = outbound.size();
+
+        brokerChannel.send(MessageBuilder.createMessage(new byte[bytes], accessor.getMessageHeaders()));
+
+        assertThat(outbound).hasSize(before + 1);
+        return outbound.get(before);
+    }
+
+    private void send(MessageChannel clientInboundChannel, SimpMessageType type, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(SESSION_ID);
+        if (destination != null) {
+            accessor.setSubscriptionId("sub-" + destination);
+            accessor.setDestination(destination);
+        }
+        accessor.setUser((Principal) () -> USERNAME);
+        clientInboundChannel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private double shed(String policy) {
+        return meterRegistry.counter("websocket.outbound.shed", "policy", policy).count();
+    }
+}
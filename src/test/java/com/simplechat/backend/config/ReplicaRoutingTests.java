@@ -0,0 +1,74 @@
+package com.simplechat.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Which pool each call path reaches when a replica is configured. Both pools open the same H2 database, so the
+ * replica has the schema a real one would, but they log in as different users: {@code CURRENT_USER} names the pool
+ * a statement ran on.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1;INIT=CREATE USER IF NOT EXISTS REPLICA PASSWORD 'replica' ADMIN",
+        "app.datasource.replica.url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.driver-class-name=org.h2.Driver",
+        "app.datasource.replica.username=REPLICA",
+        "app.datasource.replica.password=replica",
+        "app.datasource.replica.read-your-writes-ms=60000"
+})
+class ReplicaRoutingTests {
+
+    private static final String PRIMARY = "SA";
+    private static final String REPLICA = "REPLICA";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Test
+    void readOnlyTransactionsReadFromTheReplica() {
+        assertThat(inTransaction(true, this::currentUser)).isEqualTo(REPLICA);
+    }
+
+    @Test
+    void readWriteTransactionsAndPlainCallsUseThePrimary() {
+        assertThat(inTransaction(false, this::currentUser)).isEqualTo(PRIMARY);
+        assertThat(currentUser()).isEqualTo(PRIMARY);
+    }
+
+    @Test
+    void onPrimaryOverridesAReadOnlyTransaction() {
+        assertThat(inTransaction(true, () -> ReplicaRoutingDataSource.onPrimary(this::currentUser))).isEqualTo(PRIMARY);
+    }
+
+    @Test
+    void recentWritersReadFromThePrimary() {
+        readYourWritesTracker.recordWrite(1L);
+
+        assertThat(inTransaction(true, () -> readYourWritesTracker.read(1L, this::currentUser))).isEqualTo(PRIMARY);
+        assertThat(inTransaction(true, () -> readYourWritesTracker.read(2L, this::currentUser))).isEqualTo(REPLICA);
+    }
+
+    private String inTransaction(boolean readOnly, Supplier<String> work) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> work.get());
+    }
+
+    private String currentUser() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_USER", String.class);
+    }
+}
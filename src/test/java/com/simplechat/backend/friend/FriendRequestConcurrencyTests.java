@@ -0,0 +1,174 @@
+package com.simplechat.backend.friend;
+
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races many transitions of the same friend request against each other. Whatever the interleaving, exactly one
+ * must win and the others must fail with the usual {@link IllegalStateException}, never with a duplicate row.
+ */
+@SpringBootTest
+class FriendRequestConcurrencyTests {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User first;
+    private User second;
+
+    @BeforeEach
+    void setUp() {
+        first = createUser("racer1");
+        second = createUser("racer2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        friendRequestRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentRequestsBetweenTwoUsersStoreOneRow() throws Exception {
+        // Half the threads send one way, half the other.
+        List<Outcome> outcomes = race(i -> i % 2 == 0
+                ? friendService.sendFriendRequest(first, second.getId())
+                : friendService.sendFriendRequest(second, first.getId()));
+
+        assertThat(outcomes).filteredOn(Outcome::succeeded).hasSize(1);
+        assertThat(outcomes).filteredOn(outcome -> !outcome.succeeded())
+                .allSatisfy(outcome -> assertThat(outcome.failure()).isInstanceOf(IllegalStateException.class));
+        assertThat(friendRequestRepository.findAll())
+                .singleElement()
+                .satisfies(request -> assertThat(request.getStatus()).isEqualTo(FriendStatus.PENDING));
+    }
+
+    @Test
+    void concurrentResponsesToOneRequestApplyOnce() throws Exception {
+        Long requestId = friendService.sendFriendRequest(first, second.getId()).getId();
+
+        List<Outcome> outcomes = race(i -> friendService.respondToFriendRequest(
+                second, requestId, i % 2 == 0 ? FriendStatus.ACCEPTED : FriendStatus.DECLINED));
+
+        List<Outcome> winners = outcomes.stream().filter(Outcome::succeeded).toList();
+        assertThat(winners).hasSize(1);
+        assertThat(outcomes).filteredOn(outcome -> !outcome.succeeded())
+                .allSatisfy(outcome -> assertThat(outcome.failure()).isInstanceOf(IllegalStateException.class));
+        assertThat(friendRequestRepository.findById(requestId))
+                .hasValueSatisfying(request -> assertThat(request.getStatus()).isEqualTo(winners.get(0).request().getStatus()));
+    }
+
+    @Test
+    void friendListCachedBeforeTheAcceptCommitsIsDropped() throws Exception {
+        Long requestId = friendService.sendFriendRequest(first, second.getId()).getId();
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                friendService.respondToFriendRequest(second, requestId, FriendStatus.ACCEPTED);
+                // Another request reads, and caches, the friend list while the accept is not yet committed.
+                try {
+                    assertThat(reader.submit(() -> friendService.getCachedFriends(first.getId())).get(30, TimeUnit.SECONDS))
+                            .doesNotContainKey(second.getId());
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    throw new AssertionError("Reading the friend list failed", e);
+                }
+            });
+        } finally {
+            reader.shutdownNow();
+        }
+
+        assertThat(friendService.getCachedFriends(first.getId())).containsKey(second.getId());
+        assertThat(friendService.getCachedFriends(second.getId())).containsKey(first.getId());
+    }
+
+    @Test
+    void declinedRequestCanBeSentAgainFromEitherSide() {
+        FriendRequest request = friendService.sendFriendRequest(first, second.getId());
+        friendService.respondToFriendRequest(second, request.getId(), FriendStatus.DECLINED);
+
+        FriendRequest reopened = friendService.sendFriendRequest(second, first.getId());
+
+        assertThat(reopened.getId()).isEqualTo(request.getId());
+        assertThat(reopened.getSender().getId()).isEqualTo(second.getId());
+        assertThat(reopened.getStatus()).isEqualTo(FriendStatus.PENDING);
+        assertThat(friendRequestRepository.count()).isEqualTo(1);
+    }
+
+    private List<Outcome> race(IntFunction<FriendRequest> transition) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<FriendRequest>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return transition.apply(thread);
+                }));
+            }
+            start.countDown();
+
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<FriendRequest> future : futures) {
+                try {
+                    outcomes.add(new Outcome(future.get(30, TimeUnit.SECONDS), null));
+                } catch (ExecutionException e) {
+                    outcomes.add(new Outcome(null, e.getCause()));
+                } catch (TimeoutException e) {
+                    throw new AssertionError("Transition did not finish", e);
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+
+    private record Outcome(FriendRequest request, Throwable failure) {
+
+        boolean succeeded() {
+            return failure == null;
+        }
+    }
+}
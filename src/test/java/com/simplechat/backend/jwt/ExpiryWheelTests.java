@@ -0,0 +1,89 @@
+package com.simplechat.backend.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deadline bookkeeping of the timing wheel, including deadlines more than one turn of the wheel out.
+ */
+class ExpiryWheelTests {
+
+    private static final long TICK = 1000;
+    private static final int SLOTS = 1024;
+    private static final long START = 1_700_000_000_000L;
+
+    private final ExpiryWheel wheel = new ExpiryWheel(TICK, SLOTS, START);
+
+    @Test
+    void keyExpiresOnTheTickOfItsDeadline() {
+        wheel.schedule("a", at(5));
+
+        assertThat(wheel.advance(at(4))).isEmpty();
+        assertThat(wheel.advance(at(5))).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineBeyondOneTurnWaitsForItsTurn() {
+        int ticks = SLOTS + 476;
+        wheel.schedule("far", at(ticks));
+
+        // Tick 476 visits the same slot one turn early.
+        assertThat(wheel.advance(at(476))).isEmpty();
+        assertThat(wheel.advance(at(ticks - 1))).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(at(ticks))).containsExactly("far");
+    }
+
+    @Test
+    void deadlineBeyondOneTurnExpiresWhenAdvancedPastInOneStep() {
+        wheel.schedule("far", at(3 * SLOTS + 7));
+
+        assertThat(wheel.advance(at(4 * SLOTS))).containsExactly("far");
+    }
+
+    @Test
+    void cancelledKeyNeverExpires() {
+        wheel.schedule("near", at(3));
+        wheel.schedule("far", at(SLOTS + 3));
+
+        wheel.cancel("near");
+        wheel.cancel("far");
+
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(at(2 * SLOTS))).isEmpty();
+    }
+
+    @Test
+    void pastDeadlineExpiresOnTheNextTick() {
+        wheel.advance(at(10));
+
+        wheel.schedule("late", at(2));
+
+        assertThat(wheel.advance(at(11))).containsExactly("late");
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() {
+        wheel.schedule("a", at(5));
+        wheel.schedule("a", at(SLOTS + 20));
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(at(SLOTS + 19))).isEmpty();
+        assertThat(wheel.advance(at(SLOTS + 20))).containsExactly("a");
+    }
+
+    @Test
+    void reschedulingEarlierDropsTheLaterDeadline() {
+        wheel.schedule("a", at(SLOTS + 20));
+        wheel.schedule("a", at(5));
+
+        assertThat(wheel.advance(at(5))).containsExactly("a");
+        assertThat(wheel.advance(at(2 * SLOTS))).isEmpty();
+    }
+
+    private static long at(long ticks) {
+        return START + ticks * TICK;
+    }
+}
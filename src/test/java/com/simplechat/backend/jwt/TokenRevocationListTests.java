@@ -0,0 +1,96 @@
+package com.simplechat.backend.jwt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Revocations written by other nodes, as seen through polling, and their removal once every token they cover
+ * has expired.
+ */
+// Polls only when a test calls poll(), so no scheduled poll applies a revocation first on another thread.
+@SpringBootTest(properties = "app.security.revocation.poll-ms=3600000")
+@RecordApplicationEvents
+class TokenRevocationListTests {
+
+    private static final long USER_ID = 424242L;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private TokenRevocationRepository revocationRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void tearDown() {
+        revocationRepository.deleteAll();
+    }
+
+    @Test
+    void pollPicksUpRevocationsThatCommitAfterThePreviousPoll() {
+        revocationList.poll();
+        String sessionId = UUID.randomUUID().toString();
+
+        // Another node's transaction stamped the row before this node's last poll but committed after it.
+        revocationRepository.save(new TokenRevocation(USER_ID, sessionId, Instant.now().minusSeconds(5)));
+        assertThat(revocationList.isRevoked(token(sessionId))).isFalse();
+
+        revocationList.poll();
+
+        assertThat(revocationList.isRevoked(token(sessionId))).isTrue();
+    }
+
+    @Test
+    void overlappingPollsAnnounceARevocationOnce() {
+        String sessionId = UUID.randomUUID().toString();
+        revocationRepository.save(new TokenRevocation(USER_ID, sessionId, Instant.now()));
+
+        revocationList.poll();
+        revocationList.poll();
+
+        assertThat(events.stream(TokenRevokedEvent.class).filter(event -> sessionId.equals(event.sessionId())))
+                .hasSize(1);
+    }
+
+    @Test
+    void purgeForgetsRevocationsOlderThanTheTokenLifetime() {
+        Duration lifetime = jwtService.getExpiration();
+        String expiredSession = UUID.randomUUID().toString();
+        String currentSession = UUID.randomUUID().toString();
+        // Just past the lifetime: forgotten in memory, but the row is kept for the poll overlap.
+        TokenRevocation expired = revocationRepository.save(
+                new TokenRevocation(USER_ID, expiredSession, Instant.now().minus(lifetime).minusSeconds(5)));
+        TokenRevocation longGone = revocationRepository.save(
+                new TokenRevocation(USER_ID, UUID.randomUUID().toString(), Instant.now().minus(lifetime).minusSeconds(60)));
+        revocationRepository.save(new TokenRevocation(USER_ID, currentSession, Instant.now()));
+        revocationList.load();
+        assertThat(revocationList.isRevoked(token(expiredSession))).isTrue();
+
+        revocationList.purgeExpired();
+
+        assertThat(revocationList.isRevoked(token(expiredSession))).isFalse();
+        assertThat(revocationList.isRevoked(token(currentSession))).isTrue();
+        assertThat(revocationRepository.existsById(expired.getId())).isTrue();
+        assertThat(revocationRepository.existsById(longGone.getId())).isFalse();
+    }
+
+    private static AccessToken token(String sessionId) {
+        Instant issuedAt = Instant.now().minusSeconds(1);
+        return new AccessToken(USER_ID, "revoked-user", sessionId, issuedAt, issuedAt.plusSeconds(60));
+    }
+}
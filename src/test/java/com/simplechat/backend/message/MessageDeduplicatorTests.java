@@ -0,0 +1,159 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.chat.ChatController;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * A message sent again under the same client message id is stored and fanned out once. The resend is answered from
+ * memory on the node that took the first send, and from the claimed id in the database anywhere else.
+ */
+@SpringBootTest
+class MessageDeduplicatorTests {
+
+    private static final String CLIENT_MESSAGE_ID = "client-1";
+
+    @Autowired
+    private ChatController chatController;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private PendingDeliveryService pendingDeliveryService;
+
+    @MockitoSpyBean
+    private MessageDeduplicator messageDeduplicator;
+
+    @MockitoBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MessageClientIdRepository clientIdRepository;
+
+    @Autowired
+    private MessageSearchTokenRepository tokenRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User sender;
+    private User recipient;
+
+    @BeforeEach
+    void setUp() {
+        sender = createUser("dedup-sender");
+        recipient = createUser("dedup-recipient");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pendingDeliveryService.drain(recipient.getId());
+        clientIdRepository.deleteAll();
+        tokenRepository.deleteAll();
+        messageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void resendToTheSameNodeIsAnsweredFromMemory() {
+        SentMessage first = messageService.send(sender, request("hello"));
+        SentMessage resent = messageService.send(sender, request("hello"));
+
+        assertThat(resent.isResend()).isTrue();
+        assertThat(resent.payload()).isSameAs(first.payload());
+        verify(messageDeduplicator, never()).findStored(any(), any());
+        assertThat(messageRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void resendElsewhereFindsTheClaimedIdAndIsNotFannedOutAgain() {
+        // As on another node, or after the cache has let the message go
+        doReturn(Optional.empty()).when(messageDeduplicator).findRecent(any(), any());
+
+        chatController.sendMessage(request("hello"), "session-1", principal());
+        clearInvocations(messagingTemplate);
+        chatController.sendMessage(request("hello"), "session-2", principal());
+
+        verify(messageDeduplicator).findStored(sender.getId(), CLIENT_MESSAGE_ID);
+        assertThat(messageRepository.count()).isEqualTo(1);
+        // Only the resending session gets its copy: nothing to the recipient, nothing to the sender's other sessions.
+        verify(messagingTemplate).convertAndSendToUser(eq(sender.getUsername()), eq("/queue/private"), any(), anyMap());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        // The recipient was offline, and the first send alone queued the message for them.
+        assertThat(pendingIds()).containsExactly(messageRepository.findAll().get(0).getId());
+    }
+
+    @Test
+    void resendCarriesTheStoredMessage() {
+        doReturn(Optional.empty()).when(messageDeduplicator).findRecent(any(), any());
+
+        Message saved = messageService.send(sender, request("hello")).message();
+        SentMessage resent = messageService.send(sender, request("hello again"));
+
+        assertThat(resent.isResend()).isTrue();
+        MessageDto dto = (MessageDto) ReflectionTestUtils.getField(resent.payload(), "jsonBody");
+        assertThat(dto.getId()).isEqualTo(saved.getId());
+        assertThat(dto.getContent()).isEqualTo("hello");
+    }
+
+    @Test
+    void failedSendLeavesTheIdUnclaimed() {
+        ChatMessageRequest toNobody = new ChatMessageRequest(-1L, "hello", null, CLIENT_MESSAGE_ID);
+
+        assertThatThrownBy(() -> messageService.send(sender, toNobody)).isInstanceOf(IllegalArgumentException.class);
+
+        SentMessage retried = messageService.send(sender, request("hello"));
+        assertThat(retried.isResend()).isFalse();
+        assertThat(messageRepository.count()).isEqualTo(1);
+    }
+
+    private List<Long> pendingIds() {
+        List<?> pending = (List<?>) ReflectionTestUtils.getField(pendingDeliveryService.drain(recipient.getId()), "jsonBody");
+        return pending.stream().map(dto -> ((MessageDto) dto).getId()).toList();
+    }
+
+    private ChatMessageRequest request(String content) {
+        return new ChatMessageRequest(recipient.getId(), content, null, CLIENT_MESSAGE_ID);
+    }
+
+    private Principal principal() {
+        return sender::getUsername;
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,150 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Moving rows out of the default partition into a new monthly one, on PostgreSQL with the Flyway schema.
+ * Run with {@code gradle postgresTest}.
+ */
+@Tag("postgres")
+@SpringBootTest
+@ActiveProfiles("postgres")
+class MessagePartitionManagerPostgresTests {
+
+    private static final int THREADS = 4;
+    // Long before any partition the migrations or the scheduled run create
+    private static final YearMonth MARCH = YearMonth.of(2001, 3);
+    private static final YearMonth MAY = YearMonth.of(2001, 5);
+
+    @Autowired
+    private MessagePartitionManager partitionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User sender;
+    private User recipient;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        sender = createUser("partition-sender");
+        recipient = createUser("partition-recipient");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    @Test
+    void rowsInTheDefaultPartitionMoveToTheirMonth() {
+        long first = insert(MARCH.atDay(1).atStartOfDay());
+        long last = insert(MARCH.atEndOfMonth().atTime(23, 59, 59, 999_999_000));
+        long may = insert(MAY.atDay(1).atStartOfDay());
+        assertThat(partitionOf(first)).isEqualTo("messages_default");
+
+        partitionManager.createUpcomingPartitions();
+
+        assertThat(partitionOf(first)).isEqualTo("messages_y2001m03");
+        assertThat(partitionOf(last)).isEqualTo("messages_y2001m03");
+        assertThat(partitionOf(may)).isEqualTo("messages_y2001m05");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM messages_default WHERE sender_id = ?",
+                Long.class, sender.getId())).isZero();
+        // Attached, so new rows of the month are routed there directly.
+        assertThat(partitionOf(insert(MARCH.atDay(15).atStartOfDay()))).isEqualTo("messages_y2001m03");
+    }
+
+    @Test
+    void concurrentRunsCreateEachPartitionOnce() throws Exception {
+        long message = insert(MARCH.atDay(10).atStartOfDay());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    partitionManager.createUpcomingPartitions();
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // A node that found the lock taken skipped the run, so the next run picks up whatever it missed.
+        partitionManager.createUpcomingPartitions();
+        assertThat(partitionOf(message)).isEqualTo("messages_y2001m03");
+    }
+
+    private long insert(LocalDateTime timestamp) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO messages (content, timestamp, sender_id, recipient_id) VALUES ('x', ?, ?, ?)",
+                    new String[] {"id"});
+            statement.setTimestamp(1, Timestamp.valueOf(timestamp));
+            statement.setLong(2, sender.getId());
+            statement.setLong(3, recipient.getId());
+            return statement;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    private String partitionOf(long messageId) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM messages WHERE id = ?", String.class, messageId);
+    }
+
+    private void cleanUp() {
+        for (YearMonth month : List.of(MARCH, MAY)) {
+            partitionManager.detach(month);
+            partitionManager.drop(month);
+        }
+        jdbcTemplate.update("DELETE FROM messages WHERE sender_id IN (SELECT id FROM app_user WHERE username LIKE 'partition-%')");
+        jdbcTemplate.update("DELETE FROM app_user WHERE username LIKE 'partition-%'");
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
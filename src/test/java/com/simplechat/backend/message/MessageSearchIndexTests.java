@@ -0,0 +1,170 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * What the blind index matches: whole normalised words, per participant, all words of the query; and how the
+ * backfill walks older messages down in batches until it removes its progress row. The scheduled backfill finds no
+ * progress row at startup and stops, so the backfill test drives an instance of its own.
+ */
+@SpringBootTest(properties = "app.messages.search.backfill-interval-ms=3600000")
+class MessageSearchIndexTests {
+
+    private static final int PAGE = 20;
+
+    @Autowired
+    private MessageSearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MessageSearchTokenRepository tokenRepository;
+
+    @Autowired
+    private MessageSearchBackfillRepository backfillRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.encryption.key}")
+    private String encryptionSecret;
+
+    private User alice;
+    private User bob;
+    private User carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = createUser("search-alice");
+        bob = createUser("search-bob");
+        carol = createUser("search-carol");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM message_search_backfill");
+        tokenRepository.deleteAll();
+        messageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void searchMatchesWholeNormalisedWordsOfEitherParticipant() {
+        Long id = indexed(alice, bob, "Meet at the CAFÉ, ｔｏｍｏｒｒｏｗ!");
+
+        assertThat(searchIndex.search(alice.getId(), "café Tomorrow", null, PAGE)).containsExactly(id);
+        assertThat(searchIndex.search(bob.getId(), "tomorrow", null, PAGE)).containsExactly(id);
+        // Tokens are per user, whole word, and every word of the query must be present.
+        assertThat(searchIndex.search(carol.getId(), "tomorrow", null, PAGE)).isEmpty();
+        assertThat(searchIndex.search(alice.getId(), "tomor", null, PAGE)).isEmpty();
+        assertThat(searchIndex.search(alice.getId(), "tomorrow tonight", null, PAGE)).isEmpty();
+    }
+
+    @Test
+    void tokensAreOpaqueAndStoredOncePerWordAndParticipant() {
+        indexed(alice, bob, "hello hello HELLO world a");
+        indexed(alice, alice, "note to self");
+
+        List<String> tokens = jdbcTemplate.queryForList("SELECT token FROM message_search_tokens", String.class);
+        // Two words for two participants, then three words for one.
+        assertThat(tokens).hasSize(7).doesNotHaveDuplicates();
+        assertThat(tokens).noneMatch(token -> token.contains("hello") || token.contains("note"));
+    }
+
+    @Test
+    void resultsAreNewestFirstAndPageBelowTheGivenId() {
+        Long first = indexed(alice, bob, "lunch");
+        Long second = indexed(bob, alice, "lunch again");
+        Long third = indexed(alice, bob, "lunch");
+
+        assertThat(searchIndex.search(alice.getId(), "lunch", null, 2)).containsExactly(third, second);
+        assertThat(searchIndex.search(alice.getId(), "lunch", second, 2)).containsExactly(first);
+    }
+
+    @Test
+    void queriesWithoutSearchableWordsOrWithTooManyAreRejected() {
+        assertThatThrownBy(() -> searchIndex.search(alice.getId(), "a ! ?", null, PAGE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchIndex.search(alice.getId(), "one two three four five six seven eight nine", null, PAGE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void backfillIndexesOlderMessagesNewestFirstInBatches() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(save(alice, bob, "archived").getId());
+        }
+        // Sent once the index existed, so above the backfill's starting point and indexed on save.
+        Long indexedOnSave = indexed(alice, bob, "archived");
+        jdbcTemplate.update("INSERT INTO message_search_backfill (id, next_message_id) VALUES (1, ?)", ids.get(3));
+        MessageSearchIndex backfilling = new MessageSearchIndex(jdbcTemplate, transactionTemplate, tokenRepository,
+                backfillRepository, messageRepository, encryptionSecret, 2);
+
+        backfilling.backfill();
+        assertThat(searchIndex.search(bob.getId(), "archived", null, PAGE)).containsExactly(indexedOnSave, ids.get(3), ids.get(2));
+        assertThat(nextMessageId()).isEqualTo(ids.get(2) - 1);
+
+        backfilling.backfill();
+        assertThat(searchIndex.search(bob.getId(), "archived", null, PAGE))
+                .containsExactly(indexedOnSave, ids.get(3), ids.get(2), ids.get(1), ids.get(0));
+
+        // An empty batch ends the backfill, and later runs stop before touching the database.
+        backfilling.backfill();
+        assertThat(backfillRepository.count()).isZero();
+        jdbcTemplate.update("INSERT INTO message_search_backfill (id, next_message_id) VALUES (1, ?)", ids.get(3));
+        backfilling.backfill();
+        assertThat(nextMessageId()).isEqualTo(ids.get(3));
+    }
+
+    private Long nextMessageId() {
+        return jdbcTemplate.queryForObject("SELECT next_message_id FROM message_search_backfill", Long.class);
+    }
+
+    private Long indexed(User sender, User recipient, String content) {
+        Message message = save(sender, recipient, content);
+        searchIndex.index(message);
+        return message.getId();
+    }
+
+    private Message save(User sender, User recipient, String content) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setRecipient(recipient);
+        message.setContent(content);
+        message.setTimestamp(LocalDateTime.now());
+        return messageRepository.save(message);
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,211 @@
+package com.simplechat.backend.message;
+
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.wire.NegotiatedPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Holding messages for an offline recipient: the caps that spill to the database, the merged catch-up batch, and
+ * enqueues racing a drain or a spill of the same queue, where every message must end up in exactly one place.
+ */
+class PendingDeliveryServiceTests {
+
+    private static final long RECIPIENT = 1L;
+    private static final int WRITERS = 4;
+    // Enough enqueues that some land between a writer finding its queue and locking it, while a drain removes it.
+    private static final int PER_WRITER = 25_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PendingDeliveryRepository repository = mock(PendingDeliveryRepository.class);
+    private final Queue<Long> stored = new ConcurrentLinkedQueue<>();
+    private final User sender = user(2L, "sender");
+    private final User recipient = user(RECIPIENT, "recipient");
+
+    PendingDeliveryServiceTests() {
+        when(repository.save(any())).thenAnswer(invocation -> {
+            PendingDelivery delivery = invocation.getArgument(0);
+            stored.add(delivery.getMessageId());
+            return delivery;
+        });
+        when(repository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<PendingDelivery> deliveries = invocation.getArgument(0);
+            deliveries.forEach(delivery -> stored.add(delivery.getMessageId()));
+            return List.of();
+        });
+    }
+
+    @Test
+    void messagesPastThePerUserCapSpill() {
+        PendingDeliveryService service = service(2, 100, 100);
+
+        for (long id = 1; id <= 3; id++) {
+            service.enqueue(message(id));
+        }
+
+        assertThat(stored).containsExactly(3L);
+        assertThat(inMemory()).isEqualTo(2);
+        assertThat(meterRegistry.get("messages.pending.spilled").counter().count()).isEqualTo(1);
+        assertThat(ids(service.drain(RECIPIENT))).containsExactly(1L, 2L);
+        assertThat(inMemory()).isZero();
+    }
+
+    @Test
+    void messagesPastTheNodeCapSpillWithoutLeakingTheCount() {
+        PendingDeliveryService service = service(100, 2, 100);
+
+        for (long id = 1; id <= 4; id++) {
+            service.enqueue(message(id));
+        }
+
+        assertThat(stored).containsExactly(3L, 4L);
+        assertThat(inMemory()).isEqualTo(2);
+        service.drain(RECIPIENT);
+        service.enqueue(message(5L));
+        assertThat(inMemory()).isEqualTo(1);
+    }
+
+    @Test
+    void drainMergesHeldAndSpilledMessagesKeepingTheNewest() {
+        PendingDeliveryService service = service(100, 100, 4);
+        service.enqueue(message(3L));
+        service.enqueue(message(5L));
+        service.enqueue(message(6L));
+        when(repository.findNewestRows(eq(RECIPIENT), any(Pageable.class)))
+                .thenReturn(List.of(row(4L), row(2L), row(1L)));
+
+        assertThat(ids(service.drain(RECIPIENT))).containsExactly(3L, 4L, 5L, 6L);
+        // Everything spilled up to the newest row is gone, including the row older than the batch.
+        verify(repository).deleteDelivered(RECIPIENT, 4L);
+        assertThat(inMemory()).isZero();
+    }
+
+    @Test
+    void enqueuesRacingDrainsLoseNothing() throws Exception {
+        PendingDeliveryService service = service(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        List<Long> drained = new ArrayList<>();
+
+        runAgainstWriters(service, () -> drained.addAll(ids(service.drain(RECIPIENT))));
+        drained.addAll(ids(service.drain(RECIPIENT)));
+
+        assertThat(missing(drained)).isEmpty();
+        assertThat(drained.size()).isEqualTo(WRITERS * PER_WRITER);
+        assertThat(stored).isEmpty();
+        assertThat(inMemory()).isZero();
+    }
+
+    @Test
+    void enqueuesRacingSpillsLoseNothing() throws Exception {
+        PendingDeliveryService service = service(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+
+        runAgainstWriters(service, service::spillIdle);
+        service.spillAll();
+
+        assertThat(missing(stored)).isEmpty();
+        assertThat(stored.size()).isEqualTo(WRITERS * PER_WRITER);
+        assertThat(inMemory()).isZero();
+    }
+
+    /**
+     * Runs the writers, each enqueueing its own range of message ids, and repeats the action until they are done.
+     */
+    private void runAgainstWriters(PendingDeliveryService service, Runnable action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int writer = 0; writer < WRITERS; writer++) {
+                long first = (long) writer * PER_WRITER + 1;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long id = first; id < first + PER_WRITER; id++) {
+                        service.enqueue(message(id));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            while (!futures.stream().allMatch(Future::isDone)) {
+                action.run();
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PendingDeliveryService service(int maxPerUser, int maxInMemory, int maxBatch) {
+        return service(maxPerUser, maxInMemory, maxBatch, 300_000);
+    }
+
+    private PendingDeliveryService service(int maxPerUser, int maxInMemory, int maxBatch, long memoryIdleMillis) {
+        return new PendingDeliveryService(mock(SimpUserRegistry.class), mock(SimpMessagingTemplate.class), repository,
+                meterRegistry, maxPerUser, maxInMemory, maxBatch, memoryIdleMillis, 30);
+    }
+
+    private double inMemory() {
+        return meterRegistry.get("messages.pending.memory").gauge().value();
+    }
+
+    private Message message(Long id) {
+        Message message = new Message();
+        message.setId(id);
+        message.setContent("m" + id);
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        message.setSender(sender);
+        message.setRecipient(recipient);
+        return message;
+    }
+
+    private static MessageRow row(Long id) {
+        return new MessageRow(id, "m" + id, LocalDateTime.of(2024, 1, 1, 12, 0), 2L, "sender", RECIPIENT, "recipient",
+                null, null, null, null);
+    }
+
+    private static List<Long> ids(NegotiatedPayload payload) {
+        return ((List<?>) ReflectionTestUtils.getField(payload, "jsonBody")).stream().map(dto -> ((MessageDto) dto).getId()).toList();
+    }
+
+    private static Set<Long> missing(Collection<Long> ids) {
+        Set<Long> missing = new HashSet<>(LongStream.rangeClosed(1, (long) WRITERS * PER_WRITER).boxed().toList());
+        ids.forEach(missing::remove);
+        return missing;
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,192 @@
+package com.simplechat.backend.persistence;
+
+import com.simplechat.backend.friend.FriendRequest;
+import com.simplechat.backend.friend.FriendRequestRepository;
+import com.simplechat.backend.friend.FriendStatus;
+import com.simplechat.backend.jwt.JwtService;
+import com.simplechat.backend.message.Message;
+import com.simplechat.backend.message.MessageRepository;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements behind the list endpoints. Each endpoint must run a fixed number of statements
+ * no matter how many rows it returns, so an N+1 regression fails the build.
+ * Authentication itself runs none: {@code JwtAuthenticationFilter} builds the principal from the access token.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class SqlStatementCountTests {
+
+    private static final int ROWS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User owner;
+    private final List<User> friends = new ArrayList<>();
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        owner = createUser("owner");
+        for (int i = 0; i < ROWS; i++) {
+            User friend = createUser("friend" + i);
+            friends.add(friend);
+            // Alternate directions so both sides of the friendship query are exercised.
+            createRequest(i % 2 == 0 ? owner : friend, i % 2 == 0 ? friend : owner, FriendStatus.ACCEPTED);
+            createRequest(createUser("stranger" + i), owner, FriendStatus.PENDING);
+        }
+        for (int i = 0; i < ROWS * 2; i++) {
+            createMessage(i % 2 == 0 ? owner : friends.get(0), i % 2 == 0 ? friends.get(0) : owner, i);
+        }
+        token = jwtService.generateToken(owner.getId(), owner.getUsername(), "test-session");
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.deleteAll();
+        friendRequestRepository.deleteAll();
+        userRepository.deleteAll();
+        friends.clear();
+    }
+
+    @Test
+    void loginRunsOneQueryAndStartsSession() throws Exception {
+        owner.setPasswordHash(passwordEncoder.encode("secret123"));
+        userRepository.save(owner);
+
+        assertStatements(2, () -> {
+            MvcResult login = mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"username\":\"owner\",\"password\":\"secret123\"}"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(login))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.token").isNotEmpty())
+                    .andExpect(jsonPath("$.refreshToken").isNotEmpty());
+        });
+    }
+
+    @Test
+    void chatHistoryRunsOneQuery() throws Exception {
+        assertStatements(1, () -> mockMvc.perform(get("/api/messages/" + friends.get(0).getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ROWS * 2))
+                .andExpect(jsonPath("$[0].content").value("message 0"))
+                .andExpect(jsonPath("$[0].sender.username").value("owner")));
+    }
+
+    @Test
+    void pendingRequestsRunOneQuery() throws Exception {
+        assertStatements(1, () -> mockMvc.perform(get("/api/friends/pending")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ROWS))
+                .andExpect(jsonPath("$[0].receiver.username").value("owner")));
+    }
+
+    @Test
+    void friendsListRunsOneQueryPerDirection() throws Exception {
+        assertStatements(2, () -> mockMvc.perform(get("/api/friends")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ROWS)));
+    }
+
+    @Test
+    void sendingFriendRequestRunsOneQueryAndOneInsert() throws Exception {
+        User newcomer = createUser("newcomer");
+
+        assertStatements(2, () -> mockMvc.perform(post("/api/friends/request/" + newcomer.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.receiver.username").value("newcomer")));
+    }
+
+    private void assertStatements(long expected, ThrowingRunnable request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        request.run();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+
+    private void createRequest(User sender, User receiver, FriendStatus status) {
+        FriendRequest request = new FriendRequest();
+        request.setSender(sender);
+        request.setReceiver(receiver);
+        request.setStatus(status);
+        request.setCreatedAt(LocalDateTime.now());
+        friendRequestRepository.save(request);
+    }
+
+    private void createMessage(User sender, User recipient, int index) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setRecipient(recipient);
+        message.setContent("message " + index);
+        message.setTimestamp(LocalDateTime.now().minusMinutes(ROWS * 2 - index));
+        messageRepository.save(message);
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,63 @@
+package com.simplechat.backend.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Buckets per policy and key, their eviction once refilled, and the rejection metrics.
+ */
+class RateLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimiter rateLimiter = new RateLimiter(meterRegistry, true);
+
+    @Test
+    void keysAndPoliciesHaveSeparateBuckets() {
+        RateLimitPolicy login = new RateLimitPolicy("login", 1, Duration.ofHours(1));
+        RateLimitPolicy search = new RateLimitPolicy("search", 1, Duration.ofHours(1));
+
+        assertThat(rateLimiter.tryAcquire(login, "ip:1")).isZero();
+        assertThat(rateLimiter.tryAcquire(login, "ip:2")).isZero();
+        assertThat(rateLimiter.tryAcquire(search, "ip:1")).isZero();
+
+        Duration wait = rateLimiter.tryAcquire(login, "ip:1");
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofHours(1));
+        assertThat(meterRegistry.get("ratelimit.rejected").tag("policy", "login").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("ratelimit.rejected").tag("policy", "search").counter()).isNull();
+    }
+
+    @Test
+    void evictionDropsOnlyRefilledBuckets() throws InterruptedException {
+        RateLimitPolicy slow = new RateLimitPolicy("slow", 1, Duration.ofHours(1));
+        RateLimitPolicy fast = new RateLimitPolicy("fast", 1, Duration.ofMillis(1));
+        rateLimiter.tryAcquire(slow, "user:1");
+        rateLimiter.tryAcquire(fast, "user:1");
+        assertThat(bucketCount()).isEqualTo(2);
+
+        Thread.sleep(20);
+        rateLimiter.evictIdleBuckets();
+
+        assertThat(bucketCount()).isEqualTo(1);
+        // The surviving bucket kept its state, so the slow key is still limited.
+        assertThat(rateLimiter.tryAcquire(slow, "user:1")).isPositive();
+        assertThat(rateLimiter.tryAcquire(fast, "user:1")).isZero();
+    }
+
+    @Test
+    void disabledLimiterAllowsEverything() {
+        RateLimiter disabled = new RateLimiter(new SimpleMeterRegistry(), false);
+        RateLimitPolicy policy = new RateLimitPolicy("login", 1, Duration.ofHours(1));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(disabled.tryAcquire(policy, "ip:1")).isZero();
+        }
+    }
+
+    private double bucketCount() {
+        return meterRegistry.get("ratelimit.buckets").gauge().value();
+    }
+}
@@ -0,0 +1,113 @@
+package com.simplechat.backend.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GCRA arithmetic of the token bucket, driven by a fake clock: burst size, refill rate and the reported wait.
+ */
+class TokenBucketTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long START = 1_000 * SECOND;
+    private static final int THREADS = 8;
+
+    // One permit per second, up to three at once.
+    private final RateLimitPolicy policy = new RateLimitPolicy("test", 3, Duration.ofSeconds(3));
+
+    @Test
+    void fullBucketAllowsABurstOfCapacity() {
+        TokenBucket bucket = new TokenBucket(START);
+
+        for (int i = 0; i < policy.capacity(); i++) {
+            assertThat(bucket.tryAcquire(policy, START)).as("permit %d", i).isZero();
+        }
+        assertThat(bucket.tryAcquire(policy, START)).isPositive();
+    }
+
+    @Test
+    void rejectionReportsTheWaitUntilTheNextPermit() {
+        TokenBucket bucket = new TokenBucket(START);
+        drain(bucket, START);
+
+        assertThat(bucket.tryAcquire(policy, START)).isEqualTo(SECOND);
+        assertThat(bucket.tryAcquire(policy, START + SECOND / 4)).isEqualTo(3 * SECOND / 4);
+        // A rejection takes nothing, so the wait does not grow with retries.
+        assertThat(bucket.tryAcquire(policy, START + SECOND / 4)).isEqualTo(3 * SECOND / 4);
+    }
+
+    @Test
+    void permitsRefillOnePerInterval() {
+        TokenBucket bucket = new TokenBucket(START);
+        drain(bucket, START);
+
+        assertThat(bucket.tryAcquire(policy, START + SECOND - 1)).isEqualTo(1);
+        assertThat(bucket.tryAcquire(policy, START + SECOND)).isZero();
+        assertThat(bucket.tryAcquire(policy, START + SECOND)).isPositive();
+
+        assertThat(bucket.tryAcquire(policy, START + 3 * SECOND)).isZero();
+        assertThat(bucket.tryAcquire(policy, START + 3 * SECOND)).isZero();
+        assertThat(bucket.tryAcquire(policy, START + 3 * SECOND)).isPositive();
+    }
+
+    @Test
+    void idleTimeDoesNotSaveUpMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(START);
+        long muchLater = START + 100 * SECOND;
+
+        assertThat(bucket.isFull(muchLater)).isTrue();
+        drain(bucket, muchLater);
+        assertThat(bucket.tryAcquire(policy, muchLater)).isEqualTo(SECOND);
+        assertThat(bucket.isFull(muchLater)).isFalse();
+        assertThat(bucket.isFull(muchLater + 3 * SECOND)).isTrue();
+    }
+
+    @Test
+    void concurrentCallersShareOneBurst() throws Exception {
+        RateLimitPolicy large = new RateLimitPolicy("large", 50, Duration.ofSeconds(50));
+        TokenBucket bucket = new TokenBucket(START);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int attempt = 0; attempt < 100; attempt++) {
+                        if (bucket.tryAcquire(large, START) == 0) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+
+            int granted = 0;
+            for (Future<Integer> future : futures) {
+                granted += future.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(granted).isEqualTo(large.capacity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void drain(TokenBucket bucket, long nowNanos) {
+        for (int i = 0; i < policy.capacity(); i++) {
+            assertThat(bucket.tryAcquire(policy, nowNanos)).isZero();
+        }
+    }
+}
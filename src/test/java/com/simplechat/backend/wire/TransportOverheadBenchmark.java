@@ -0,0 +1,187 @@
+package com.simplechat.backend.wire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simplechat.backend.jwt.JwtService;
+import com.simplechat.backend.user.User;
+import com.simplechat.backend.user.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load harness comparing the plain WebSocket endpoint with SockJS over its WebSocket transport.
+ * Reports connection setup time (SockJS includes its {@code /info} request) and, for a closed loop of chat messages,
+ * bytes on the wire in each direction and the round trip from SEND to the echoed MESSAGE.
+ * Excluded from {@code test}; run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+// The closed loop sends far faster than the per-user chat limit allows.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "app.ratelimit.enabled=false")
+class TransportOverheadBenchmark {
+
+    private static final int CONNECTS = 50;
+    private static final int MESSAGES = 2_000;
+    private static final int WARMUP = 200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StandardWebSocketClient client = new StandardWebSocketClient();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void compareTransports() throws Exception {
+        User sender = createUser("bench_sender");
+        User recipient = createUser("bench_recipient");
+        String token = jwtService.generateToken(sender.getId(), sender.getUsername(), "benchmark");
+
+        // The first pass only warms up both code paths; the second is reported.
+        for (int pass = 0; pass < 2; pass++) {
+            boolean print = pass == 1;
+            if (print) {
+                System.out.printf("%-7s %12s %12s %12s %12s%n", "endpoint", "connect ms", "out B/msg", "in B/msg", "rtt us");
+            }
+            for (boolean sockJs : new boolean[]{false, true}) {
+                double connectMillis = measureConnect(sockJs, token);
+                report(sockJs, connectMillis, token, recipient.getId(), print);
+            }
+        }
+    }
+
+    private double measureConnect(boolean sockJs, String token) throws Exception {
+        long total = 0;
+        for (int i = 0; i < CONNECTS; i++) {
+            long startedAt = System.nanoTime();
+            StompConnection connection = connect(sockJs, token);
+            total += System.nanoTime() - startedAt;
+            connection.session.close();
+        }
+        return total / (double) CONNECTS / 1_000_000;
+    }
+
+    private void report(boolean sockJs, double connectMillis, String token, Long recipientId, boolean print) throws Exception {
+        StompConnection connection = connect(sockJs, token);
+        connection.send("SUBSCRIBE\nid:sub-0\ndestination:/user/queue/private\n\n\0");
+        Thread.sleep(200);
+
+        for (int i = 0; i < WARMUP; i++) {
+            roundTrip(connection, recipientId, i);
+        }
+        connection.bytesSent.set(0);
+        connection.bytesReceived.set(0);
+
+        long totalNanos = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            totalNanos += roundTrip(connection, recipientId, i);
+        }
+        connection.session.close();
+
+        if (!print) {
+            return;
+        }
+        System.out.printf("%-7s %12.2f %12.1f %12.1f %12d%n", sockJs ? "sockjs" : "native", connectMillis,
+                connection.bytesSent.get() / (double) MESSAGES,
+                connection.bytesReceived.get() / (double) MESSAGES,
+                totalNanos / MESSAGES / 1_000);
+    }
+
+    private long roundTrip(StompConnection connection, Long recipientId, int i) throws Exception {
+        long startedAt = System.nanoTime();
+        connection.send("SEND\ndestination:/app/chat.send\ncontent-type:application/json\n\n"
+                + "{\"recipientId\":" + recipientId + ",\"content\":\"load test message number " + i + "\"}\0");
+        String frame = connection.frames.poll(5, TimeUnit.SECONDS);
+        assertThat(frame).startsWith("MESSAGE");
+        return System.nanoTime() - startedAt;
+    }
+
+    private StompConnection connect(boolean sockJs, String token) throws Exception {
+        String uri;
+        if (sockJs) {
+            // A SockJS client always asks /info before choosing a transport.
+            HttpResponse<String> info = httpClient.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/ws/info")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(info.statusCode()).isEqualTo(200);
+            uri = "ws://localhost:" + port + "/ws/000/" + UUID.randomUUID().toString().substring(0, 8) + "/websocket";
+        } else {
+            uri = "ws://localhost:" + port + "/ws-native";
+        }
+
+        StompConnection connection = new StompConnection(sockJs);
+        connection.session = client.execute(connection, uri).get(5, TimeUnit.SECONDS);
+        connection.send("CONNECT\naccept-version:1.2\nheart-beat:0,0\nAuthorization:Bearer " + token + "\n\n\0");
+        assertThat(connection.frames.poll(5, TimeUnit.SECONDS)).startsWith("CONNECTED");
+        return connection;
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+
+    /**
+     * Counts raw frame bytes and unwraps SockJS {@code a[...]} frames into STOMP frames.
+     */
+    private class StompConnection extends TextWebSocketHandler {
+
+        private final boolean sockJs;
+        private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private WebSocketSession session;
+
+        private StompConnection(boolean sockJs) {
+            this.sockJs = sockJs;
+        }
+
+        void send(String stompFrame) throws Exception {
+            String payload = sockJs ? objectMapper.writeValueAsString(new String[]{stompFrame}) : stompFrame;
+            bytesSent.addAndGet(payload.getBytes(StandardCharsets.UTF_8).length);
+            session.sendMessage(new TextMessage(payload));
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+            String payload = message.getPayload();
+            bytesReceived.addAndGet(payload.getBytes(StandardCharsets.UTF_8).length);
+
+            if (!sockJs) {
+                frames.add(payload);
+            } else if (payload.startsWith("a")) {
+                for (String frame : objectMapper.readValue(payload.substring(1), String[].class)) {
+                    frames.add(frame);
+                }
+            }
+        }
+    }
+}
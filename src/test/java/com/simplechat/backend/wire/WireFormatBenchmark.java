@@ -0,0 +1,99 @@
+package com.simplechat.backend.wire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.simplechat.backend.message.CompactMessageDto;
+import com.simplechat.backend.message.MessageDto;
+import com.simplechat.backend.user.UserDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Bytes per chat message and encoding cost of the JSON and compact CBOR payloads, with and without permessage-deflate.
+ * Deflate keeps its window across messages (context takeover) as browsers and Tomcat do by default.
+ * Excluded from {@code test}; run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class WireFormatBenchmark {
+
+    private static final int MESSAGES = 10_000;
+    private static final int ROUNDS = 5;
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    @Test
+    void compareFormats() throws Exception {
+        List<MessageDto> full = new ArrayList<>(MESSAGES);
+        List<CompactMessageDto> compact = new ArrayList<>(MESSAGES);
+        UserDto alice = new UserDto(1042L, "alice_wonder");
+        UserDto bob = new UserDto(2077L, "bob_the_builder");
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+        for (int i = 0; i < MESSAGES; i++) {
+            boolean fromAlice = i % 2 == 0;
+            String content = "message " + i + (i % 3 == 0 ? " - see you at the usual place around seven?" : " ok");
+            LocalDateTime timestamp = start.plusSeconds(i * 7L);
+            UserDto sender = fromAlice ? alice : bob;
+            UserDto recipient = fromAlice ? bob : alice;
+
+            full.add(new MessageDto(100_000L + i, content, timestamp, sender, recipient));
+            compact.add(new CompactMessageDto(100_000L + i, sender.id(), recipient.id(), content,
+                    timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), null));
+        }
+
+        System.out.printf("%-6s %12s %16s %14s%n", "format", "bytes/msg", "deflated/msg", "ns/encode");
+        report("json", full, jsonMapper);
+        report("cbor", compact, cborMapper);
+    }
+
+    private void report(String name, List<?> bodies, ObjectMapper mapper) throws Exception {
+        long bestNanos = Long.MAX_VALUE;
+        long bytes = 0;
+        List<byte[]> encoded = new ArrayList<>(bodies.size());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            encoded.clear();
+            bytes = 0;
+            long startedAt = System.nanoTime();
+            for (Object body : bodies) {
+                byte[] frame = mapper.writeValueAsBytes(body);
+                bytes += frame.length;
+                encoded.add(frame);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startedAt);
+        }
+
+        System.out.printf("%-6s %12.1f %16.1f %14d%n", name,
+                (double) bytes / bodies.size(),
+                (double) deflatedSize(encoded) / bodies.size(),
+                bestNanos / bodies.size());
+    }
+
+    private static long deflatedSize(List<byte[]> frames) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        byte[] buffer = new byte[8192];
+        long total = 0;
+
+        for (byte[] frame : frames) {
+            deflater.setInput(frame);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int written;
+            while ((written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH)) > 0) {
+                out.write(buffer, 0, written);
+            }
+            // RFC 7692 drops the trailing 00 00 ff ff of each sync flush.
+            total += out.size() - 4;
+        }
+        deflater.end();
+        return total;
+    }
+}